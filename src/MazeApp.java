@@ -60,7 +60,13 @@ public class MazeApp {
     public static void loadMaze(Scanner scan) {
         System.out.print("Enter the file name: ");
         String fileName = scan.nextLine().trim();
-        maze = new Maze(fileName);
+        try {
+            maze = new Maze(fileName);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            maze = null;
+            return;
+        }
         if (!maze.isInitialized()) {
             // if we couldn't initialize the maze, print an error
             // message and set maze to null
@@ -0,0 +1,133 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import maze.CellLayout;
+import maze.Maze;
+import solver.AStarMazeSolver;
+import solver.AnytimeMazeSolver;
+import solver.MazeSolver;
+
+/**
+ * Compares how fast the solvers run on large generated mazes stored in each
+ * cell layout. Usage: java MazeBenchmark [width height [seed]]. Without a
+ * size, a square maze and a wide maze are both measured.
+ */
+public class MazeBenchmark {
+    /** Runs before timing starts, so the JIT has compiled the solvers */
+    private static final int WARMUP_RUNS = 2;
+    /** Timed runs of each solver, of which the median is reported */
+    private static final int TIMED_RUNS = 5;
+    /** Fraction of the remaining walls knocked down to make loops */
+    private static final double EXTRA_OPENINGS = 0.1;
+    /** Time budget of the anytime solver in milliseconds, long enough for
+     * it to reach the shortest path */
+    private static final long ANYTIME_BUDGET = 60000;
+
+    public static void main(String[] args) throws IOException {
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        if (args.length >= 2) {
+            benchmark(Integer.parseInt(args[0]), Integer.parseInt(args[1]), seed);
+        } else {
+            benchmark(2001, 2001, seed);
+            benchmark(8001, 501, seed);
+        }
+    }
+
+    /** Generates a maze of the passed in size and times the solvers on it in every layout */
+    private static void benchmark(int width, int height, long seed) throws IOException {
+        File file = File.createTempFile("maze", ".txt");
+        file.deleteOnExit();
+        generate(width, height, seed, file);
+        System.out.println("Maze of " + width + " x " + height + ":");
+        for (CellLayout layout : CellLayout.values()) {
+            if (!layout.fits(width, height)) {
+                System.out.printf("   %-10s too large for this layout%n", layout);
+                continue;
+            }
+            Maze maze = new Maze(file.getPath(), layout);
+            if (!maze.isInitialized()) {
+                System.out.println("Error: Maze initialization failed");
+                return;
+            }
+            System.out.printf("   %-10s A* %8.1f ms   anytime A* %8.1f ms%n", layout,
+                    time(maze, false), time(maze, true));
+        }
+    }
+
+    /** Returns the median time in milliseconds to solve the maze from scratch */
+    private static double time(Maze maze, boolean anytime) {
+        double[] times = new double[TIMED_RUNS];
+        for (int run = -WARMUP_RUNS; run < TIMED_RUNS; run++) {
+            MazeSolver solver = anytime ? new AnytimeMazeSolver(maze, ANYTIME_BUDGET)
+                    : new AStarMazeSolver(maze);
+            long start = System.nanoTime();
+            solver.solve();
+            if (run >= 0) {
+                times[run] = (System.nanoTime() - start) / 1e6;
+            }
+        }
+        Arrays.sort(times);
+        return times[TIMED_RUNS / 2];
+    }
+
+    /**
+     * Writes a random maze to the passed in file. The corridors are carved
+     * with a depth first search from the top left, then some walls are
+     * knocked down so there are several routes. The start is at the top left
+     * and the finish at the bottom right.
+     */
+    private static void generate(int width, int height, long seed, File file) throws IOException {
+        Random random = new Random(seed);
+        char[][] grid = new char[height][width];
+        for (char[] row : grid) {
+            Arrays.fill(row, '#');
+        }
+        int[][] moves = { {0, 2}, {2, 0}, {0, -2}, {-2, 0} };
+        Deque<int[]> stack = new ArrayDeque<int[]>();
+        grid[1][1] = '.';
+        stack.push(new int[] {1, 1});
+        while (!stack.isEmpty()) {
+            int[] cur = stack.peek();
+            List<int[]> options = new ArrayList<int[]>();
+            for (int[] move : moves) {
+                int row = cur[0] + move[0];
+                int col = cur[1] + move[1];
+                if (row > 0 && row < height - 1 && col > 0 && col < width - 1 && grid[row][col] == '#') {
+                    options.add(move);
+                }
+            }
+            if (options.isEmpty()) {
+                stack.pop();
+                continue;
+            }
+            int[] move = options.get(random.nextInt(options.size()));
+            grid[cur[0] + move[0] / 2][cur[1] + move[1] / 2] = '.';
+            grid[cur[0] + move[0]][cur[1] + move[1]] = '.';
+            stack.push(new int[] {cur[0] + move[0], cur[1] + move[1]});
+        }
+        for (int r = 1; r < height - 1; r++) {
+            for (int c = 1; c < width - 1; c++) {
+                if (grid[r][c] == '#' && random.nextDouble() < EXTRA_OPENINGS) {
+                    grid[r][c] = '.';
+                }
+            }
+        }
+        // the carved squares are at odd rows and columns
+        grid[1][1] = 'o';
+        grid[(height - 3) | 1][(width - 3) | 1] = '*';
+
+        PrintWriter out = new PrintWriter(file);
+        out.println(width + " " + height);
+        for (char[] row : grid) {
+            out.println(new String(row));
+        }
+        out.close();
+    }
+}
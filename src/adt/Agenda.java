@@ -1,5 +1,7 @@
 package adt;
 
+import java.util.List;
+
 public interface Agenda<T>
 {
     public boolean isEmpty();
@@ -7,4 +9,7 @@ public interface Agenda<T>
     public void add(T t);
     public T remove();
     public T peek();
+    /** Returns the elements in the order they were added, so adding them
+     * to an empty agenda in this order recreates this agenda */
+    public List<T> toList();
 }
\ No newline at end of file
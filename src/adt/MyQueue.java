@@ -1,5 +1,7 @@
 package adt;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 public class MyQueue<T> implements Agenda<T> {
@@ -28,4 +30,10 @@ public class MyQueue<T> implements Agenda<T> {
         return baseQueue.peek();
     }
 
+    @Override
+    public List<T> toList() {
+        // the head of the queue was added first
+        return new ArrayList<T>(baseQueue);
+    }
+
 }
\ No newline at end of file
@@ -1,4 +1,6 @@
 package adt;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
 
 public class MyStack<T> implements Agenda<T> {
@@ -27,6 +29,11 @@ public class MyStack<T> implements Agenda<T> {
 	public T peek() {
 		return baseStack.peek();
 	}
+	@Override
+	public List<T> toList() {
+		// the bottom of the stack was added first
+		return new ArrayList<T>(baseStack);
+	}
 	
 	
 }
\ No newline at end of file
@@ -0,0 +1,89 @@
+package adt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A zero-filled array of bytes outside the Java heap, indexed by long so it
+ * can be larger than 2^31 bytes. It is made of direct buffers of CHUNK_SIZE
+ * bytes each, which are only allocated when first written, so untouched
+ * parts of a large array cost nothing. The garbage collector only sees the
+ * small buffer objects, not the memory they hold. The memory is given back
+ * when the array is no longer reachable. Direct buffers are limited in
+ * total by -XX:MaxDirectMemorySize, so large arrays need it raised. Longs
+ * must be at indexes that are a multiple of 8, so that none of them spans
+ * two chunks.
+ */
+public class OffHeapArray {
+    /** log2 of the number of bytes in each chunk */
+    private static final int CHUNK_SHIFT = 24;
+    /** The number of bytes in each chunk */
+    public static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /** The number of bytes in the array */
+    private long length;
+    /** The chunks of the array, or null for chunks that are still all zero */
+    private ByteBuffer[] chunks;
+
+    /**
+     * @param length The number of bytes in the array
+     */
+    public OffHeapArray(long length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Length must not be negative");
+        }
+        long count = (length + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Array is too large");
+        }
+        this.length = length;
+        chunks = new ByteBuffer[(int) count];
+    }
+
+    /** Returns the number of bytes in the array */
+    public long length() {
+        return length;
+    }
+
+    /** Returns the position of the chunk holding byte index */
+    private int chunkIndex(long index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return (int) (index >>> CHUNK_SHIFT);
+    }
+
+    /** Returns the chunk holding byte index, allocating it if needed */
+    private ByteBuffer chunk(long index) {
+        int i = chunkIndex(index);
+        if (chunks[i] == null) {
+            int size = (int) Math.min(CHUNK_SIZE, length - ((long) i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        }
+        return chunks[i];
+    }
+
+    /** Returns the byte at index */
+    public byte getByte(long index) {
+        ByteBuffer chunk = chunks[chunkIndex(index)];
+        // chunks that haven't been written are all zero
+        return chunk == null ? 0 : chunk.get((int) (index & CHUNK_MASK));
+    }
+
+    /** Sets the byte at index */
+    public void setByte(long index, byte value) {
+        chunk(index).put((int) (index & CHUNK_MASK), value);
+    }
+
+    /** Returns the long starting at byte index, which must be a multiple of 8 */
+    public long getLong(long index) {
+        ByteBuffer chunk = chunks[chunkIndex(index)];
+        return chunk == null ? 0 : chunk.getLong((int) (index & CHUNK_MASK));
+    }
+
+    /** Sets the long starting at byte index, which must be a multiple of 8 */
+    public void setLong(long index, long value) {
+        chunk(index).putLong((int) (index & CHUNK_MASK), value);
+    }
+}
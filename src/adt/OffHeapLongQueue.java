@@ -0,0 +1,79 @@
+package adt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * A first in, first out queue of longs stored outside the Java heap, which
+ * can hold more than 2^31 elements. The elements are kept in direct buffers.
+ * A chunk is taken when the tail needs one and dropped once the head has
+ * moved past it, so the queue only uses memory for about the elements it
+ * currently holds. The first chunk holds FIRST_CHUNK_LONGS longs and each
+ * one after is twice as large, up to MAX_CHUNK_LONGS, so small queues stay
+ * small.
+ */
+public class OffHeapLongQueue {
+    /** The number of longs in the first chunk */
+    private static final int FIRST_CHUNK_LONGS = 1 << 10;
+    /** The most longs in a chunk */
+    private static final int MAX_CHUNK_LONGS = (int) (OffHeapArray.CHUNK_SIZE / 8);
+
+    /** The chunks in use, the first holding the head and the last the tail */
+    private ArrayDeque<ByteBuffer> chunks;
+    /** The position of the head in the first chunk */
+    private int head;
+    /** The position after the tail in the last chunk */
+    private int tail;
+    /** The number of longs in the next chunk to be taken */
+    private int nextChunkLongs;
+    /** The number of elements */
+    private long size;
+
+    public OffHeapLongQueue() {
+        chunks = new ArrayDeque<ByteBuffer>();
+        nextChunkLongs = FIRST_CHUNK_LONGS;
+    }
+
+    /** Returns the number of longs the chunk holds */
+    private static int longs(ByteBuffer chunk) {
+        return chunk.capacity() / 8;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public void add(long value) {
+        if (chunks.isEmpty() || tail == longs(chunks.getLast())) {
+            chunks.addLast(ByteBuffer.allocateDirect(nextChunkLongs * 8).order(ByteOrder.nativeOrder()));
+            nextChunkLongs = Math.min(nextChunkLongs * 2, MAX_CHUNK_LONGS);
+            tail = 0;
+        }
+        chunks.getLast().putLong(8 * tail++, value);
+        size++;
+    }
+
+    public long remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        long value = chunks.getFirst().getLong(8 * head++);
+        size--;
+        if (head == longs(chunks.getFirst())) {
+            // the head has left this chunk, so its memory can go
+            chunks.removeFirst();
+            head = 0;
+        } else if (size == 0) {
+            // start over in the one chunk left
+            head = 0;
+            tail = 0;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,20 @@
+package maze;
+
+/**
+ * Numbers the squares of a maze so that grid data can be kept in one flat
+ * array. Different numberings keep different squares close together in
+ * memory: row-major numbering keeps rows together, while the tiled and
+ * Z-order numberings also keep the squares above and below close by, so
+ * vertical moves are less likely to miss the cache on wide mazes.
+ */
+public interface CellIndex {
+    /** Returns the position of the square at row, col */
+    public int index(int row, int col);
+    /** Returns the row of the square at the passed in position */
+    public int row(int index);
+    /** Returns the column of the square at the passed in position */
+    public int col(int index);
+    /** Returns the length of an array that can hold every square. This can
+     * be more than width * height if the numbering leaves gaps. */
+    public int size();
+}
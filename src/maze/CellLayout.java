@@ -0,0 +1,36 @@
+package maze;
+
+/**
+ * The ways the squares of a maze can be laid out in memory.
+ */
+public enum CellLayout {
+    /** Each row after the one before it */
+    ROW_MAJOR,
+    /** Small square tiles, each stored row by row */
+    TILED,
+    /** Z-order, which interleaves the bits of the row and column */
+    MORTON;
+
+    /** Returns whether the squares of a width by height grid, with any
+     * padding this layout adds, can be numbered with an int */
+    public boolean fits(int width, int height) {
+        switch (this) {
+            case TILED: {
+                long tile = TiledCellIndex.DEFAULT_TILE_SIZE;
+                long tiles = ((width + tile - 1) / tile) * ((height + tile - 1) / tile);
+                return tiles * tile * tile <= Integer.MAX_VALUE;
+            }
+            case MORTON: return MortonCellIndex.fits(width, height);
+            default: return (long) width * height <= Integer.MAX_VALUE;
+        }
+    }
+
+    /** Returns a numbering of the squares of a width by height grid in this layout */
+    public CellIndex create(int width, int height) {
+        switch (this) {
+            case TILED: return new TiledCellIndex(width, height, TiledCellIndex.DEFAULT_TILE_SIZE);
+            case MORTON: return new MortonCellIndex(width, height);
+            default: return new RowMajorCellIndex(width, height);
+        }
+    }
+}
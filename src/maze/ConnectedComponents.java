@@ -0,0 +1,171 @@
+package maze;
+
+import java.awt.Point;
+
+/**
+ * Labels the connected components of the open squares of a maze using a
+ * union-find structure. Two squares are connected if they are orthogonally
+ * adjacent and neither is a wall, or if they are the two teleporters.
+ * Once built, asking whether two squares are connected takes (almost)
+ * constant time, so a solver can reject impossible mazes without searching.
+ */
+public class ConnectedComponents {
+    /** Label stored for wall squares, which do not belong to any component */
+    private static final int NONE = -1;
+
+    /** The maze these components belong to */
+    private Maze maze;
+    /** parent[i] is the parent of cell i (row * width + col) in the union-find
+     * forest, the cell itself if it is a root, or NONE if it is a wall */
+    private int[] parent;
+    /** The number of cells in the tree rooted at i, only valid for roots */
+    private int[] size;
+    /** If a square was turned into a wall, the labels are out of date and
+     * must be rebuilt before being used */
+    private boolean stale;
+
+    /** Builds the components of the passed in maze */
+    public ConnectedComponents(Maze maze) {
+        this.maze = maze;
+        build();
+    }
+
+    /** Labels every square of the maze from scratch. */
+    private void build() {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        int cells = maze.countCells("Connected components");
+        parent = new int[cells];
+        size = new int[cells];
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                int cell = r * width + c;
+                if (maze.at(r, c) == Square.WALL) {
+                    parent[cell] = NONE;
+                } else {
+                    parent[cell] = cell;
+                    size[cell] = 1;
+                }
+            }
+        }
+        // scan each row once, joining each square with the squares
+        // to its right and below it
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                unionNeighbors(r, c);
+            }
+        }
+        Point[] teleporters = maze.getTeleporters();
+        if (teleporters != null) {
+            union(teleporters[0].y * width + teleporters[0].x,
+                    teleporters[1].y * width + teleporters[1].x);
+        }
+        stale = false;
+    }
+
+    /** Joins the square at row, col with its open neighbors to the right and below */
+    private void unionNeighbors(int row, int col) {
+        int width = maze.getWidth();
+        int cell = row * width + col;
+        if (parent[cell] == NONE) {
+            return;
+        }
+        if (col + 1 < width && parent[cell + 1] != NONE) {
+            union(cell, cell + 1);
+        }
+        if (row + 1 < maze.getHeight() && parent[cell + width] != NONE) {
+            union(cell, cell + width);
+        }
+    }
+
+    /** Returns the root of the tree containing cell, compressing the path
+     * along the way, or NONE if the cell is a wall */
+    private int find(int cell) {
+        if (parent[cell] == NONE) {
+            return NONE;
+        }
+        int root = cell;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        while (parent[cell] != root) {
+            int next = parent[cell];
+            parent[cell] = root;
+            cell = next;
+        }
+        return root;
+    }
+
+    /** Merges the trees containing cells a and b, attaching the smaller to the larger */
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB || rootA == NONE || rootB == NONE) {
+            return;
+        }
+        if (size[rootA] < size[rootB]) {
+            int temp = rootA;
+            rootA = rootB;
+            rootB = temp;
+        }
+        parent[rootB] = rootA;
+        size[rootA] += size[rootB];
+    }
+
+    /**
+     * Updates the labels after the square at row, col changed. Opening a
+     * square only merges components, so it is handled in place. Closing
+     * a square may split a component, so the labels are rebuilt the next
+     * time they are needed.
+     * @param row The row of the square that changed
+     * @param col The column of the square that changed
+     */
+    void update(int row, int col) {
+        if (stale) {
+            return;
+        }
+        int width = maze.getWidth();
+        int cell = row * width + col;
+        if (maze.at(row, col) == Square.WALL) {
+            stale = parent[cell] != NONE;
+            return;
+        }
+        if (parent[cell] == NONE) {
+            parent[cell] = cell;
+            size[cell] = 1;
+        }
+        unionNeighbors(row, col);
+        if (col > 0) {
+            unionNeighbors(row, col - 1);
+        }
+        if (row > 0) {
+            unionNeighbors(row - 1, col);
+        }
+    }
+
+    /** Returns the component label of the square at row, col, or -1 if it is a wall.
+     * Two squares are connected exactly when they have the same label. */
+    public int label(int row, int col) {
+        if (stale) {
+            build();
+        }
+        return find(row * maze.getWidth() + col);
+    }
+
+    /** Returns the number of squares in the component of the square at
+     * row, col, or 0 if it is a wall */
+    public int size(int row, int col) {
+        int root = label(row, col);
+        return root == NONE ? 0 : size[root];
+    }
+
+    /** Returns whether there is a path between the two locations
+     * (in the format x = col, y = row) */
+    public boolean connected(Point a, Point b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        int labelA = label(a.y, a.x);
+        return labelA != NONE && labelA == label(b.y, b.x);
+    }
+}
@@ -0,0 +1,230 @@
+package maze;
+
+import java.awt.Point;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The number of moves from every square of a maze to the nearest finish,
+ * found with one breadth first search outward from every finish. Once
+ * built, the shortest path from any square can be followed by repeatedly
+ * moving to a neighbor that is one move closer, so each query takes time
+ * proportional to the length of its path. Cells are numbered row * width + col.
+ */
+public class DistanceField {
+    /** Distance stored for squares from which the finish can't be reached */
+    public static final int UNREACHABLE = -1;
+    /** Mazes with at least this many squares are searched with several threads */
+    public static final int PARALLEL_THRESHOLD = 1 << 20;
+    /** Frontiers smaller than this are expanded on one thread even in large mazes */
+    private static final int PARALLEL_CHUNK = 4096;
+    /** Identifies a saved distance field */
+    private static final int MAGIC = 0x4d5a4446;
+    /** Version of the saved format */
+    private static final int VERSION = 3;
+    /** Lets worker threads claim squares of the distance array atomically */
+    private static final VarHandle DIST = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private int width;
+    private int height;
+    /** distances[cell] is the number of moves from the cell to the nearest finish */
+    private int[] distances;
+    /** The cells of the two teleporters, or -1 if there are none */
+    private int teleporterA;
+    private int teleporterB;
+    /** The fingerprint of the maze the field was built for */
+    private long fingerprint;
+
+    private DistanceField(Maze maze, int[] distances) {
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+        this.distances = distances;
+        this.fingerprint = maze.fingerprint();
+        Point[] teleporters = maze.getTeleporters();
+        teleporterA = teleporters == null ? -1 : teleporters[0].y * width + teleporters[0].x;
+        teleporterB = teleporters == null ? -1 : teleporters[1].y * width + teleporters[1].x;
+    }
+
+    /**
+     * Builds the distance field of a maze. Large mazes are searched one
+     * level at a time with each level's frontier split between threads.
+     * @param maze The maze to measure
+     * @return The distance from every square to the nearest finish
+     */
+    public static DistanceField build(Maze maze) {
+        int[] distances = new int[maze.countCells("A distance field")];
+        Arrays.fill(distances, UNREACHABLE);
+        DistanceField field = new DistanceField(maze, distances);
+        if (maze.getFinishes().length == 0) {
+            return field;
+        }
+        boolean[] walls = new boolean[distances.length];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                walls[r * maze.getWidth() + c] = maze.at(r, c) == Square.WALL;
+            }
+        }
+        boolean parallel = distances.length >= PARALLEL_THRESHOLD;
+
+        int[] frontier = new int[maze.getFinishes().length];
+        for (int i = 0; i < frontier.length; i++) {
+            frontier[i] = maze.getFinishes()[i].y * field.width + maze.getFinishes()[i].x;
+            distances[frontier[i]] = 0;
+        }
+        int level = 0;
+        while (frontier.length > 0) {
+            level++;
+            if (parallel && frontier.length >= PARALLEL_CHUNK) {
+                frontier = field.expandParallel(frontier, walls, level);
+            } else {
+                frontier = field.expand(frontier, 0, frontier.length, walls, level);
+            }
+        }
+        return field;
+    }
+
+    /**
+     * Labels the unlabeled neighbors of frontier[from] to frontier[to - 1]
+     * with the passed in distance and returns them.
+     */
+    private int[] expand(int[] frontier, int from, int to, boolean[] walls, int level) {
+        int[] next = new int[Math.max(16, (to - from) * 2)];
+        int count = 0;
+        int[] neighbors = new int[5];
+        for (int i = from; i < to; i++) {
+            int found = neighbors(frontier[i], neighbors);
+            for (int n = 0; n < found; n++) {
+                int cell = neighbors[n];
+                if (!walls[cell] && DIST.compareAndSet(distances, cell, UNREACHABLE, level)) {
+                    if (count == next.length) {
+                        next = Arrays.copyOf(next, count * 2);
+                    }
+                    next[count++] = cell;
+                }
+            }
+        }
+        return Arrays.copyOf(next, count);
+    }
+
+    /** Splits the frontier into chunks, expands them on the common fork join
+     * pool and joins the results into the next frontier */
+    private int[] expandParallel(int[] frontier, boolean[] walls, int level) {
+        int chunks = (frontier.length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        int[][] parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> expand(frontier, chunk * PARALLEL_CHUNK,
+                        Math.min(frontier.length, (chunk + 1) * PARALLEL_CHUNK), walls, level))
+                .toArray(int[][]::new);
+        int total = 0;
+        for (int[] part : parts) {
+            total += part.length;
+        }
+        int[] next = new int[total];
+        int pos = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, next, pos, part.length);
+            pos += part.length;
+        }
+        return next;
+    }
+
+    /** Stores the cells one move away from cell into result, including the
+     * other teleporter, and returns how many there are */
+    private int neighbors(int cell, int[] result) {
+        int count = 0;
+        int row = cell / width;
+        int col = cell % width;
+        for (int[] offset : Maze.ADJACENTS) {
+            int newCol = col + offset[0];
+            int newRow = row + offset[1];
+            if (newCol >= 0 && newCol < width && newRow >= 0 && newRow < height) {
+                result[count++] = newRow * width + newCol;
+            }
+        }
+        if (cell == teleporterA) {
+            result[count++] = teleporterB;
+        } else if (cell == teleporterB) {
+            result[count++] = teleporterA;
+        }
+        return count;
+    }
+
+    /** Returns the number of moves from the square at row, col to the nearest finish,
+     * or UNREACHABLE if there is no path */
+    public int distance(int row, int col) {
+        return distances[row * width + col];
+    }
+
+    /**
+     * Returns the location one move closer to the nearest finish than the passed
+     * in location, or null if the location is a finish or can't reach one.
+     * Locations are in the format x = col, y = row.
+     */
+    public Point nextStep(Point from) {
+        int cell = from.y * width + from.x;
+        int dist = distances[cell];
+        if (dist <= 0) {
+            return null;
+        }
+        int[] neighbors = new int[5];
+        int found = neighbors(cell, neighbors);
+        for (int n = 0; n < found; n++) {
+            if (distances[neighbors[n]] == dist - 1) {
+                return new Point(neighbors[n] % width, neighbors[n] / width);
+            }
+        }
+        return null;
+    }
+
+    /** Returns the fingerprint of the maze the field was built for */
+    long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Saves the distance field so it can be loaded again with read(). The
+     * fingerprint of the maze is saved with it, so it can't be loaded for a
+     * maze with different walls, finishes or teleporters.
+     * @param out Where to write the field
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(fingerprint);
+        for (int dist : distances) {
+            out.writeInt(dist);
+        }
+    }
+
+    /**
+     * Loads a distance field saved with write().
+     * @param maze The maze the field was built for
+     * @param in Where to read the field from
+     * @return The loaded field
+     * @throws IOException If reading fails or the field doesn't match the maze
+     */
+    public static DistanceField read(Maze maze, DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a saved distance field");
+        }
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unsupported distance field version");
+        }
+        if (in.readInt() != maze.getWidth() || in.readInt() != maze.getHeight()
+                || in.readLong() != maze.fingerprint()) {
+            throw new IOException("Distance field was saved for a different maze");
+        }
+        int[] distances = new int[maze.countCells("A distance field")];
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = in.readInt();
+        }
+        return new DistanceField(maze, distances);
+    }
+}
@@ -0,0 +1,11 @@
+package maze;
+
+/**
+ * Holds the squares of a maze.
+ */
+interface GridStorage {
+    /** Returns the square at row, col */
+    public Square get(int row, int col);
+    /** Changes the square at row, col */
+    public void set(int row, int col, Square square);
+}
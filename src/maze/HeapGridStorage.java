@@ -0,0 +1,25 @@
+package maze;
+
+/**
+ * Holds the squares of a maze in an array on the Java heap, numbered by a
+ * CellIndex.
+ */
+class HeapGridStorage implements GridStorage {
+    private Square[] squares;
+    private CellIndex cells;
+
+    HeapGridStorage(CellIndex cells) {
+        this.cells = cells;
+        squares = new Square[cells.size()];
+    }
+
+    @Override
+    public Square get(int row, int col) {
+        return squares[cells.index(row, col)];
+    }
+
+    @Override
+    public void set(int row, int col, Square square) {
+        squares[cells.index(row, col)] = square;
+    }
+}
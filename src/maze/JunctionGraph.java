@@ -0,0 +1,228 @@
+package maze;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A smaller version of a maze where dead ends have been filled in and each
+ * corridor (a run of squares with exactly two open neighbors) has been
+ * contracted into a single weighted edge. The nodes of the graph are the
+ * junctions of the maze together with the start, finish and teleporters.
+ * Cells are numbered row * width + col.
+ */
+public class JunctionGraph {
+    /** A corridor between two nodes of the graph */
+    public static class Edge {
+        private int to;
+        private int weight;
+        private int[] cells;
+
+        private Edge(int to, int weight, int[] cells) {
+            this.to = to;
+            this.weight = weight;
+            this.cells = cells;
+        }
+
+        /** Returns the node at the end of this edge */
+        public int getTo() {
+            return to;
+        }
+        /** Returns the number of moves needed to walk this edge */
+        public int getWeight() {
+            return weight;
+        }
+        /** Returns the cells between the two nodes, in walking order,
+         * not including either node */
+        public int[] getCells() {
+            return cells;
+        }
+    }
+
+    private Maze maze;
+    /** nodeCells[n] is the cell of node n */
+    private int[] nodeCells;
+    /** nodeOf[cell] is the node at that cell, or -1 if it isn't a node */
+    private int[] nodeOf;
+    /** edges[n] are the edges leaving node n */
+    private Edge[][] edges;
+    /** Whether each cell was filled in as part of a dead end */
+    private boolean[] filled;
+
+    /** Builds the graph of the passed in maze */
+    public JunctionGraph(Maze maze) {
+        this.maze = maze;
+        int width = maze.getWidth();
+        int cells = maze.countCells("A junction graph");
+        filled = new boolean[cells];
+        fillDeadEnds();
+
+        // every remaining square that isn't part of a corridor becomes a node
+        nodeOf = new int[cells];
+        int nodeCount = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            nodeOf[cell] = -1;
+            if (isOpen(cell) && (isKey(cell) || degree(cell) != 2)) {
+                nodeOf[cell] = nodeCount++;
+            }
+        }
+        nodeCells = new int[nodeCount];
+        for (int cell = 0; cell < cells; cell++) {
+            if (nodeOf[cell] != -1) {
+                nodeCells[nodeOf[cell]] = cell;
+            }
+        }
+
+        edges = new Edge[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            edges[node] = findEdges(node);
+        }
+    }
+
+    /** Repeatedly fills in squares with at most one open neighbor, except
+     * for the start, finish and teleporters, until none are left. */
+    private void fillDeadEnds() {
+        // squares are filled in as soon as they are found, so each one
+        // is added to deadEnds at most once
+        int[] deadEnds = new int[filled.length];
+        int count = 0;
+        for (int cell = 0; cell < filled.length; cell++) {
+            if (isDeadEnd(cell)) {
+                filled[cell] = true;
+                deadEnds[count++] = cell;
+            }
+        }
+        while (count > 0) {
+            int cell = deadEnds[--count];
+            // the neighbor of a dead end might have become a dead end itself
+            for (int[] offset : Maze.ADJACENTS) {
+                int next = neighbor(cell, offset);
+                if (next != -1 && isDeadEnd(next)) {
+                    filled[next] = true;
+                    deadEnds[count++] = next;
+                }
+            }
+        }
+    }
+
+    /** Returns whether the cell is an open square with at most one open
+     * neighbor that isn't the start, finish or a teleporter */
+    private boolean isDeadEnd(int cell) {
+        return isOpen(cell) && !isKey(cell) && degree(cell) <= 1;
+    }
+
+    /** Walks every corridor leaving the passed in node and returns
+     * the resulting edges */
+    private Edge[] findEdges(int node) {
+        List<Edge> result = new ArrayList<Edge>();
+        int start = nodeCells[node];
+        for (int[] offset : Maze.ADJACENTS) {
+            int prev = start;
+            int cur = neighbor(start, offset);
+            if (cur == -1 || !isOpen(cur)) {
+                continue;
+            }
+            List<Integer> corridor = new ArrayList<Integer>();
+            while (nodeOf[cur] == -1) {
+                corridor.add(cur);
+                // a corridor square has exactly one open neighbor besides
+                // the one we came from
+                int next = -1;
+                for (int[] step : Maze.ADJACENTS) {
+                    int candidate = neighbor(cur, step);
+                    if (candidate != -1 && candidate != prev && isOpen(candidate)) {
+                        next = candidate;
+                        break;
+                    }
+                }
+                prev = cur;
+                cur = next;
+            }
+            // corridors that loop back to the same node are never part of
+            // a shortest path
+            if (cur != start) {
+                int[] cells = new int[corridor.size()];
+                for (int i = 0; i < cells.length; i++) {
+                    cells[i] = corridor.get(i);
+                }
+                result.add(new Edge(nodeOf[cur], cells.length + 1, cells));
+            }
+        }
+        Point[] teleporters = maze.getTeleporters();
+        if (teleporters != null && maze.isTeleporter(start / maze.getWidth(), start % maze.getWidth())) {
+            Point other = teleporters[0].equals(toPoint(start)) ? teleporters[1] : teleporters[0];
+            result.add(new Edge(nodeOf[toCell(other)], 1, new int[0]));
+        }
+        return result.toArray(new Edge[result.size()]);
+    }
+
+    /** Returns the cell next to the passed in one in the direction of offset,
+     * or -1 if that would be outside the maze */
+    private int neighbor(int cell, int[] offset) {
+        int col = cell % maze.getWidth() + offset[0];
+        int row = cell / maze.getWidth() + offset[1];
+        if (col < 0 || col >= maze.getWidth() || row < 0 || row >= maze.getHeight()) {
+            return -1;
+        }
+        return row * maze.getWidth() + col;
+    }
+
+    /** Returns whether the cell is neither a wall nor filled in */
+    private boolean isOpen(int cell) {
+        return !filled[cell] && maze.at(cell / maze.getWidth(), cell % maze.getWidth()) != Square.WALL;
+    }
+
+    /** Returns whether the cell must be kept as a node no matter its shape */
+    private boolean isKey(int cell) {
+        Square square = maze.at(cell / maze.getWidth(), cell % maze.getWidth());
+        return square == Square.START || square == Square.FINISH || square == Square.TELEPORTER;
+    }
+
+    /** Returns the number of open squares adjacent to the cell */
+    private int degree(int cell) {
+        int result = 0;
+        for (int[] offset : Maze.ADJACENTS) {
+            int next = neighbor(cell, offset);
+            if (next != -1 && isOpen(next)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /** Returns the number of nodes in the graph */
+    public int getNodeCount() {
+        return nodeCells.length;
+    }
+
+    /** Returns the node at the passed in location (format x = col, y = row),
+     * or -1 if there is no node there */
+    public int nodeAt(Point location) {
+        return nodeOf[toCell(location)];
+    }
+
+    /** Returns the location of the node in the format x = col, y = row */
+    public Point getLocation(int node) {
+        return toPoint(nodeCells[node]);
+    }
+
+    /** Returns the edges leaving the node */
+    public Edge[] getEdges(int node) {
+        return edges[node];
+    }
+
+    /** Returns whether the square at row, col was filled in as part of a dead end */
+    public boolean isFilled(int row, int col) {
+        return filled[row * maze.getWidth() + col];
+    }
+
+    /** Converts a location in the format x = col, y = row to a cell number */
+    public int toCell(Point location) {
+        return location.y * maze.getWidth() + location.x;
+    }
+
+    /** Converts a cell number to a location in the format x = col, y = row */
+    public Point toPoint(int cell) {
+        return new Point(cell % maze.getWidth(), cell / maze.getWidth());
+    }
+}
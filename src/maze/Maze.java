@@ -1,24 +1,98 @@
 package maze;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 import java.awt.Point;
 import java.io.File;
 
 public class Maze {
-    /** Stores the layout of this maze so that layout[i][j] corresponds 
-     * to row i, column j */
-    private Square[][] layout;
+    /** Offsets to the four adjacent squares, in the format {col, row}. Each
+     * direction's opposite is two places after it. */
+    public static final int[][] ADJACENTS = { {0, 1}, {1, 0}, {0, -1}, {-1, 0} };
+    /** The starting value of fingerprint() */
+    private static final long FINGERPRINT_SEED = 0xcbf29ce484222325L;
+
+    /** Stores the squares of this maze */
+    private GridStorage layout;
+    /** The order the squares are stored in */
+    private CellLayout cellLayout;
+    /** Numbers the squares in that order, or null if there are too many
+     * squares to number with an int */
+    private CellIndex cells;
+    /** Whether the squares are stored outside the Java heap */
+    private boolean offHeap;
+    private int width;
+    private int height;
     
-    // start and finish of the maze
+    // start and finish of the maze. If there are several, these are the
+    // last ones in the file
     private Point start;
     private Point finish;
     
+    // the locations of every start and finish in the maze
+    private Point[] starts;
+    private Point[] finishes;
+    
     // the locations of the teleporters in the maze, or null if they do not exist 
     private Point[] teleporters;
     
     /** If the maze has been successfully initialized */
     private boolean initialized;
+    
+    /** Connected components of the open squares, or null if they have not
+     * been computed */
+    private ConnectedComponents components;
+    
+    /** The maze with dead ends filled in and corridors contracted, or null 
+     * if it hasn't been built yet */
+    private JunctionGraph junctions;
+    
+    /** The distance from every square to the finish, or null if it hasn't 
+     * been built yet */
+    private DistanceField distances;
 
+    /** Loads a maze stored row by row
+     * @param fileName The name of the file to read in.
+     * @throws IllegalArgumentException If the maze has too many squares to
+     *         number with an int
+     */
     public Maze(String fileName) {
+        this(fileName, CellLayout.ROW_MAJOR);
+    }
+    
+    /** Loads a maze stored in the passed in layout. Solvers that keep
+     * per-square state in getCellIndex() order use the same layout.
+     * @param fileName The name of the file to read in.
+     * @param cellLayout The order to store the squares in
+     * @throws IllegalArgumentException If the maze has too many squares to
+     *         number with an int in the layout
+     */
+    public Maze(String fileName, CellLayout cellLayout) {
+        this(fileName, cellLayout, false);
+    }
+    
+    /** Loads a maze, optionally storing its squares outside the Java heap.
+     * Off heap squares are stored row by row with long indexes, so the maze
+     * can have more than 2^31 squares and doesn't add to garbage collection
+     * pauses. Only solvers that don't keep per-square state in Java arrays,
+     * like OffHeapBfsMazeSolver, can solve mazes that large, and the
+     * components, junction graph and distance field can't be built for them.
+     * The memory outside the heap is limited by -XX:MaxDirectMemorySize,
+     * which is the same as -Xmx unless it is set, so large mazes need it
+     * raised: the maze takes one byte per square, and OffHeapBfsMazeSolver
+     * another byte per square plus its queue.
+     * @param fileName The name of the file to read in.
+     * @param offHeap Whether to store the squares outside the Java heap
+     * @throws IllegalArgumentException If the squares are stored on the heap
+     *         and there are too many to number with an int
+     */
+    public Maze(String fileName, boolean offHeap) {
+        this(fileName, CellLayout.ROW_MAJOR, offHeap);
+    }
+    
+    private Maze(String fileName, CellLayout cellLayout, boolean offHeap) {
+        this.cellLayout = cellLayout;
+        this.offHeap = offHeap;
     	if (!init(fileName)) {
     		initialized = false;
     	} else {
@@ -33,31 +107,52 @@ public class Maze {
      * each character representing one square.
      * @param fileName The name of the file to read in.
      * @return Whether initialization was successful.
+     * @throws IllegalArgumentException If the maze is too large for its
+     *         layout, which is checked before anything is allocated
      */
     private boolean init(String fileName) {
     	Scanner scan = null;
+    	boolean layoutFits = true;
     	try {
 	        scan = new Scanner(new File(fileName));
 	        // get dimensions of the maze
 	        String[] strDimensions = scan.nextLine().trim().split(" ");
-	        int width = Integer.parseInt(strDimensions[0]);
-	        int height = Integer.parseInt(strDimensions[1]);
-	        layout = new Square[height][width];
+	        width = Integer.parseInt(strDimensions[0]);
+	        height = Integer.parseInt(strDimensions[1]);
+	        layoutFits = offHeap && (long) width * height > Integer.MAX_VALUE
+	                || cellLayout.fits(width, height);
+	        if (!layoutFits) {
+	            throw new IllegalArgumentException("A maze of " + width + " by " + height
+	                    + " squares is too large for the " + cellLayout + " layout");
+	        }
+	        if (offHeap) {
+	            layout = new OffHeapGridStorage(width, height);
+	            cells = (long) width * height > Integer.MAX_VALUE ? null
+	                    : cellLayout.create(width, height);
+	        } else {
+	            cells = cellLayout.create(width, height);
+	            layout = new HeapGridStorage(cells);
+	        }
 	        teleporters = new Point[2];
+	        List<Point> startList = new ArrayList<Point>();
+	        List<Point> finishList = new ArrayList<Point>();
 	        
 	        // read in each row of the maze and add it to layout
 	        String row;
 	        for (int r = 0; r < height; r++) {
 	            row = scan.nextLine().trim();
 	            for (int c = 0; c < width; c++) {
-	                layout[r][c] = Square.fromChar(row.charAt(c));
+	                Square square = Square.fromChar(row.charAt(c));
+	                layout.set(r, c, square);
 	                // if the current location is a start or end, store it 
 	                // now so we don't have to calculate it later
-	                if (layout[r][c] == Square.START) {
+	                if (square == Square.START) {
 	                    start = new Point(c, r);
-	                } else if (layout[r][c] == Square.FINISH) {
+	                    startList.add(start);
+	                } else if (square == Square.FINISH) {
 	                    finish = new Point(c, r);
-	                } else if (layout[r][c] == Square.TELEPORTER) {
+	                    finishList.add(finish);
+	                } else if (square == Square.TELEPORTER) {
 	                    if (teleporters[0] == null) {
 	                        teleporters[0] = new Point(c, r);
 	                    } else {
@@ -69,11 +164,21 @@ public class Maze {
 	        if (teleporters[0] == null || teleporters[1] == null) {
 	            teleporters = null;
 	        }
+	        starts = startList.toArray(new Point[startList.size()]);
+	        finishes = finishList.toArray(new Point[finishList.size()]);
     	} catch (Exception e) {
     	    // possible exceptions: FileNotFoundException, IllegalArgumentException
     	    layout = null;
+    	    cells = null;
+    	    width = 0;
+    	    height = 0;
     	    start = null;
     	    finish = null;
+    	    starts = null;
+    	    finishes = null;
+    	    if (!layoutFits) {
+    	        throw (IllegalArgumentException) e;
+    	    }
     		return false;
     	} finally {
     		if (scan != null) { scan.close(); }
@@ -82,23 +187,24 @@ public class Maze {
     }
 
     public String toString() {
-        if (!initialized || layout == null || layout.length == 0 || layout[0].length == 0) {
+        if (!initialized || layout == null || width == 0 || height == 0) {
             return "0 0\n";
         }
-        String result = layout.length + " " + layout[0].length + "\n";
-        for (Square[] row : layout) {
-            for (Square square : row) {
-                result += square.toString();
+        StringBuilder result = new StringBuilder();
+        result.append(height).append(" ").append(width).append("\n");
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                result.append(layout.get(r, c));
             }
-            result += "\n";
+            result.append("\n");
         }
-        return result;
+        return result.toString();
     }
     
     /** Returns the Square at the specified row and column */
     public Square at(int row, int col) {
         if (initialized) {
-            return layout[row][col];
+            return layout.get(row, col);
         } else {
             return null;
         }
@@ -106,13 +212,12 @@ public class Maze {
     
     /** Returns the width (# of columns) of this Maze. */
     public int getWidth() {
-        return !initialized || layout == null 
-                || layout.length == 0 || layout[0] == null ? 0 : layout[0].length; 
+        return !initialized || layout == null ? 0 : width;
     }
     
     /** Returns the height (# of rows) of this Maze. */
     public int getHeight() {
-        return !initialized || layout == null? 0 : layout.length;
+        return !initialized || layout == null ? 0 : height;
     }
     
     /** Returns the location of the start of the maze in the format x = col, y = row  */
@@ -125,6 +230,18 @@ public class Maze {
         return finish;
     }
     
+    /** Returns the locations of every start of the maze, in the order they
+     * appear in the file */
+    public Point[] getStarts() {
+        return starts;
+    }
+    
+    /** Returns the locations of every finish of the maze, in the order they
+     * appear in the file */
+    public Point[] getFinishes() {
+        return finishes;
+    }
+    
     /** Returns the locations of the teleporters, or null if they do not exist */
     public Point[] getTeleporters() {
         return teleporters;
@@ -142,4 +259,167 @@ public class Maze {
     public boolean isInitialized() {
         return initialized;
     }
+    
+    /** Returns the order the squares of this maze are stored in */
+    public CellLayout getCellLayout() {
+        return cellLayout;
+    }
+    
+    /** Returns whether the squares of this maze are stored outside the Java heap */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    /** Returns the numbering of the squares used to store this maze, or null
+     * if the maze isn't initialized or has too many squares to number with
+     * an int. Solvers can number their own per-square state the same way so
+     * it is laid out like the maze. */
+    public CellIndex getCellIndex() {
+        return cells;
+    }
+    
+    /** Returns the number of squares, for structures that number them with
+     * an int.
+     * @param user The name of the structure, for the error message
+     * @throws IllegalStateException If there are too many squares to
+     *         number with an int */
+    int countCells(String user) {
+        long count = (long) width * height;
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalStateException(user + " can't be built for a maze of "
+                    + count + " squares, only for mazes of at most " + Integer.MAX_VALUE);
+        }
+        return (int) count;
+    }
+    
+    /** Returns a hash of the size, walls, finishes and teleporters of this
+     * maze, which are everything the distances to the finish depend on.
+     * Saved data stores it so it can be checked against the maze it is
+     * loaded for. */
+    public long fingerprint() {
+        long hash = mix(FINGERPRINT_SEED, width);
+        hash = mix(hash, height);
+        // the walls of each row, 64 squares to a word
+        for (int r = 0; r < height; r++) {
+            long word = 0;
+            for (int c = 0; c < width; c++) {
+                word = word << 1 | (layout.get(r, c) == Square.WALL ? 1 : 0);
+                if ((c & 63) == 63 || c == width - 1) {
+                    hash = mix(hash, word);
+                    word = 0;
+                }
+            }
+        }
+        if (finishes != null) {
+            for (Point target : finishes) {
+                hash = mix(hash, (long) target.y * width + target.x);
+            }
+        }
+        if (teleporters != null) {
+            hash = mix(hash, (long) teleporters[0].y * width + teleporters[0].x);
+            hash = mix(hash, (long) teleporters[1].y * width + teleporters[1].x);
+        }
+        return hash;
+    }
+
+    /** Adds a value to a fingerprint. Both the value and the result go
+     * through a finalizer that spreads every input bit over every output
+     * bit, so changes in two values can't cancel each other out. */
+    private static long mix(long hash, long value) {
+        return spread(hash ^ spread(value));
+    }
+
+    /** The 64 bit finalizer of MurmurHash3, which is a bijection */
+    private static long spread(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+    
+    /**
+     * Changes the square at the specified row and column. Only walls and 
+     * open spaces can be changed, so the start, finish and teleporters 
+     * stay where they are.
+     * @param row The row of the square to change
+     * @param col The column of the square to change
+     * @param square The new square, either WALL or OPEN_SPACE
+     */
+    public void setSquare(int row, int col, Square square) {
+        if (!initialized) {
+            return;
+        }
+        Square old = layout.get(row, col);
+        if ((square != Square.WALL && square != Square.OPEN_SPACE)
+                || (old != Square.WALL && old != Square.OPEN_SPACE)) {
+            throw new IllegalArgumentException("Only walls and open spaces can be changed");
+        }
+        layout.set(row, col, square);
+        junctions = null;
+        distances = null;
+        if (components != null) {
+            components.update(row, col);
+        }
+    }
+    
+    /** Labels the connected components of this maze so that solvers can 
+     * tell right away if the finish can't be reached. The labels are kept 
+     * up to date as squares change. */
+    public synchronized void computeComponents() {
+        if (initialized && components == null) {
+            components = new ConnectedComponents(this);
+        }
+    }
+    
+    /** Returns the connected components of this maze, or null if 
+     * computeComponents() hasn't been called */
+    public ConnectedComponents getComponents() {
+        return components;
+    }
+    
+    /** Returns the junction graph of this maze, building it the first time 
+     * it is needed */
+    public synchronized JunctionGraph getJunctionGraph() {
+        if (initialized && junctions == null) {
+            junctions = new JunctionGraph(this);
+        }
+        return junctions;
+    }
+    
+    /** Returns the distance from every square to the nearest finish, building it 
+     * the first time it is needed */
+    public synchronized DistanceField getDistanceField() {
+        if (initialized && distances == null) {
+            distances = DistanceField.build(this);
+        }
+        return distances;
+    }
+    
+    /** Uses the passed in distance field, for example one loaded with 
+     * DistanceField.read(), instead of building a new one
+     * @throws IllegalArgumentException If the field was built for a maze
+     *         with different walls, finishes or teleporters */
+    public synchronized void setDistanceField(DistanceField distances) {
+        if (distances != null && distances.getFingerprint() != fingerprint()) {
+            throw new IllegalArgumentException("Distance field was built for a different maze");
+        }
+        this.distances = distances;
+    }
+    
+    /** Returns false if no finish can be reached from the passed in 
+     * location (format x = col, y = row). If the components haven't been 
+     * computed, this always returns true. */
+    public synchronized boolean canReachFinish(Point from) {
+        if (components == null) {
+            return true;
+        }
+        for (Point target : finishes) {
+            if (components.connected(from, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
\ No newline at end of file
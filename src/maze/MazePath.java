@@ -0,0 +1,284 @@
+package maze;
+
+import java.awt.Point;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact path through a maze, stored as its starting location followed
+ * by two bits per move. A move is one of the four directions of
+ * Maze.ADJACENTS, except that the direction which would go straight back
+ * to the previous square means "teleport" instead. This relies on each
+ * direction's opposite being two places after it in Maze.ADJACENTS.
+ * Paths never turn straight back, and never teleport twice in a row, so
+ * this is unambiguous. A path that starts on a teleporter may teleport
+ * first, which is marked by a flag since there is no previous move; its
+ * first move code is then unused. Unlike a linked list of MazeNodes, the
+ * path is stored from start to finish.
+ */
+public class MazePath implements Iterable<Point> {
+    /** Marks a saved path */
+    private static final int MAGIC = 0x4d5a5054;
+    /** Moves stored in each long */
+    private static final int MOVES_PER_WORD = 32;
+    /** Code used for a teleport that doesn't follow a move */
+    private static final int NO_MOVE = -1;
+    /** Header flag of a saved path that has teleporters */
+    private static final int HAS_TELEPORTERS = 1;
+    /** Header flag of a saved path whose first move is a teleport */
+    private static final int TELEPORTS_FIRST = 2;
+
+    /** The first location of the path, in the format x = col, y = row */
+    private Point start;
+    /** The last location of the path, in the format x = col, y = row */
+    private Point end;
+    /** The number of moves in the path */
+    private int length;
+    /** The moves of the path, two bits each, starting from the low bits */
+    private long[] moves;
+    /** The locations of the two teleporters, or null if there are none */
+    private Point[] teleporters;
+    /** Whether the first move is a teleport */
+    private boolean teleportsFirst;
+
+    private MazePath(Point start, Point end, int length, long[] moves, Point[] teleporters,
+            boolean teleportsFirst) {
+        this.start = start;
+        this.end = end;
+        this.length = length;
+        this.moves = moves;
+        this.teleporters = teleporters;
+        this.teleportsFirst = teleportsFirst;
+    }
+
+    /** Returns the other teleporter than the one at location */
+    private Point otherTeleporter(Point location) {
+        return new Point(teleporters[0].equals(location) ? teleporters[1] : teleporters[0]);
+    }
+
+    /**
+     * Converts a linked list of nodes, such as a solver's solution, into a path.
+     * @param last The last node of the path, or null for no path
+     * @param maze The maze the path goes through
+     * @return The path, or null if last is null
+     * @throws IllegalArgumentException If consecutive nodes aren't one move
+     *         apart, or the path turns straight back on itself
+     */
+    public static MazePath fromNode(MazeNode last, Maze maze) {
+        if (last == null) {
+            return null;
+        }
+        List<Point> points = new ArrayList<Point>();
+        for (MazeNode node = last; node != null; node = node.getPrevious()) {
+            points.add(node.getLocation());
+        }
+        int length = points.size() - 1;
+        long[] moves = new long[(length + MOVES_PER_WORD - 1) / MOVES_PER_WORD];
+        boolean teleportsFirst = false;
+        int previous = NO_MOVE;
+        for (int i = 0; i < length; i++) {
+            // the list is in reverse order
+            Point from = points.get(length - i);
+            Point to = points.get(length - i - 1);
+            int code = direction(from, to);
+            boolean teleport = maze.isTeleporter(from.y, from.x)
+                    && maze.isTeleporter(to.y, to.x) && !from.equals(to);
+            if (code != NO_MOVE) {
+                if (previous != NO_MOVE && code == opposite(previous)) {
+                    throw new IllegalArgumentException("Path turns back on itself at " + to);
+                }
+                previous = code;
+            } else if (teleport && previous != NO_MOVE) {
+                code = opposite(previous);
+                previous = NO_MOVE;
+            } else if (teleport && i == 0) {
+                // any code will do, the flag says what the move is
+                code = 0;
+                teleportsFirst = true;
+            } else {
+                throw new IllegalArgumentException("Can't move from " + from + " to " + to);
+            }
+            moves[i / MOVES_PER_WORD] |= (long) code << (2 * (i % MOVES_PER_WORD));
+        }
+        Point[] teleporters = maze.getTeleporters() == null ? null
+                : new Point[] { new Point(maze.getTeleporters()[0]), new Point(maze.getTeleporters()[1]) };
+        return new MazePath(new Point(points.get(length)), new Point(points.get(0)),
+                length, moves, teleporters, teleportsFirst);
+    }
+
+    /** Returns the direction code, which is the index into Maze.ADJACENTS,
+     * of the move from one location to an adjacent one, or NO_MOVE if they
+     * aren't adjacent */
+    private static int direction(Point from, Point to) {
+        for (int code = 0; code < Maze.ADJACENTS.length; code++) {
+            if (from.x + Maze.ADJACENTS[code][0] == to.x && from.y + Maze.ADJACENTS[code][1] == to.y) {
+                return code;
+            }
+        }
+        return NO_MOVE;
+    }
+
+    /** Returns the code of the direction opposite to code */
+    private static int opposite(int code) {
+        return (code + 2) % Maze.ADJACENTS.length;
+    }
+
+    /** Returns the code of move number i */
+    private int code(int i) {
+        return (int) (moves[i / MOVES_PER_WORD] >>> (2 * (i % MOVES_PER_WORD))) & 3;
+    }
+
+    /**
+     * Converts this path into a linked list of nodes, like the ones returned
+     * by a solver.
+     * @param maze The maze the path goes through
+     * @return The last node of the path
+     */
+    public MazeNode toNode(Maze maze) {
+        MazeNode result = null;
+        for (Point location : this) {
+            result = new MazeNode(maze.at(location.y, location.x), location, result);
+        }
+        return result;
+    }
+
+    /** Returns the number of moves in this path, which is one less than
+     * the number of locations */
+    public int length() {
+        return length;
+    }
+
+    /** Returns the first location of the path in the format x = col, y = row */
+    public Point getStart() {
+        return new Point(start);
+    }
+
+    /** Returns the last location of the path in the format x = col, y = row */
+    public Point getEnd() {
+        return new Point(end);
+    }
+
+    /** Returns an iterator over the locations of the path from start to end,
+     * in the format x = col, y = row */
+    @Override
+    public Iterator<Point> iterator() {
+        return new Iterator<Point>() {
+            private Point current;
+            private int next = 0;
+            private int previous = NO_MOVE;
+
+            @Override
+            public boolean hasNext() {
+                return next <= length;
+            }
+
+            @Override
+            public Point next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (current == null) {
+                    current = new Point(start);
+                } else {
+                    int code = code(next - 1);
+                    if (next == 1 && teleportsFirst) {
+                        current = otherTeleporter(current);
+                    } else if (previous != NO_MOVE && code == opposite(previous)) {
+                        current = otherTeleporter(current);
+                        previous = NO_MOVE;
+                    } else {
+                        current = new Point(current.x + Maze.ADJACENTS[code][0],
+                                current.y + Maze.ADJACENTS[code][1]);
+                        previous = code;
+                    }
+                }
+                next++;
+                return new Point(current);
+            }
+        };
+    }
+
+    /**
+     * Saves this path so it can be loaded again with read().
+     * @param out Where to write the path
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(start.x);
+        out.writeInt(start.y);
+        out.writeInt(end.x);
+        out.writeInt(end.y);
+        out.writeInt(length);
+        out.writeByte((teleporters != null ? HAS_TELEPORTERS : 0)
+                | (teleportsFirst ? TELEPORTS_FIRST : 0));
+        if (teleporters != null) {
+            for (Point teleporter : teleporters) {
+                out.writeInt(teleporter.x);
+                out.writeInt(teleporter.y);
+            }
+        }
+        // only write the bytes that hold moves
+        int bytes = (length + 3) / 4;
+        for (int i = 0; i < bytes; i++) {
+            out.writeByte((int) (moves[i / 8] >>> (8 * (i % 8))));
+        }
+    }
+
+    /**
+     * Loads a path saved with write().
+     * @param in Where to read the path from
+     * @return The loaded path
+     * @throws IOException If reading fails or the data isn't a saved path
+     */
+    public static MazePath read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a saved path");
+        }
+        Point start = new Point(in.readInt(), in.readInt());
+        Point end = new Point(in.readInt(), in.readInt());
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative path length");
+        }
+        int flags = in.readByte();
+        boolean teleportsFirst = (flags & TELEPORTS_FIRST) != 0;
+        Point[] teleporters = null;
+        if ((flags & HAS_TELEPORTERS) != 0) {
+            teleporters = new Point[] { new Point(in.readInt(), in.readInt()),
+                    new Point(in.readInt(), in.readInt()) };
+        } else if (teleportsFirst) {
+            throw new IOException("Path teleports without teleporters");
+        }
+        if (teleportsFirst && length == 0) {
+            throw new IOException("Path teleports without moving");
+        }
+        long[] moves = new long[(length + MOVES_PER_WORD - 1) / MOVES_PER_WORD];
+        int bytes = (length + 3) / 4;
+        for (int i = 0; i < bytes; i++) {
+            moves[i / 8] |= (in.readByte() & 0xffL) << (8 * (i % 8));
+        }
+        return new MazePath(start, end, length, moves, teleporters, teleportsFirst);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MazePath)) {
+            return false;
+        }
+        MazePath path = (MazePath) other;
+        return start.equals(path.start) && length == path.length && teleportsFirst == path.teleportsFirst
+                && Arrays.equals(moves, path.moves) && Arrays.equals(teleporters, path.teleporters);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * start.hashCode() + length) + Arrays.hashCode(moves) + (teleportsFirst ? 1 : 0);
+    }
+}
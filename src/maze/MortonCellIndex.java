@@ -0,0 +1,91 @@
+package maze;
+
+/**
+ * Numbers squares in Z-order, by interleaving the bits of the column (even
+ * bits) and the row (odd bits). Squares that are close in both directions
+ * get close numbers at every scale. When the grid isn't square, only the
+ * low bits are interleaved and the extra high bits of the longer side go on
+ * top, so the padding stays below four times the grid. Each side is padded
+ * to a power of two.
+ */
+public class MortonCellIndex implements CellIndex {
+    /** The number of low bits of the row and of the column that are interleaved */
+    private int shared;
+    /** Whether the extra high bits belong to the column rather than the row */
+    private boolean wide;
+    private int size;
+    /** index(row, col) is rowBits[row] | colBits[col] */
+    private int[] rowBits;
+    private int[] colBits;
+
+    public MortonCellIndex(int width, int height) {
+        if (!fits(width, height)) {
+            throw new IllegalArgumentException("Maze is too large for a Z-order layout");
+        }
+        int colBitCount = bitsFor(width);
+        int rowBitCount = bitsFor(height);
+        shared = Math.min(colBitCount, rowBitCount);
+        wide = colBitCount > rowBitCount;
+        size = 1 << colBitCount + rowBitCount;
+        rowBits = new int[height];
+        for (int r = 0; r < height; r++) {
+            rowBits[r] = wide ? spread(r) << 1 : spread(r & (1 << shared) - 1) << 1 | r >> shared << 2 * shared;
+        }
+        colBits = new int[width];
+        for (int c = 0; c < width; c++) {
+            colBits[c] = wide ? spread(c & (1 << shared) - 1) | c >> shared << 2 * shared : spread(c);
+        }
+    }
+
+    /** Returns whether a width by height grid, padded to powers of two,
+     * can be numbered with an int */
+    static boolean fits(int width, int height) {
+        return bitsFor(width) + bitsFor(height) <= 30;
+    }
+
+    /** Returns the number of bits needed to number n things */
+    private static int bitsFor(int n) {
+        return n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    /** Moves bit i of x to bit 2i, for x below 2^16 */
+    private static int spread(int x) {
+        x = (x | x << 8) & 0x00ff00ff;
+        x = (x | x << 4) & 0x0f0f0f0f;
+        x = (x | x << 2) & 0x33333333;
+        x = (x | x << 1) & 0x55555555;
+        return x;
+    }
+
+    /** Moves bit 2i of x to bit i, the reverse of spread() */
+    private static int compact(int x) {
+        x &= 0x55555555;
+        x = (x | x >> 1) & 0x33333333;
+        x = (x | x >> 2) & 0x0f0f0f0f;
+        x = (x | x >> 4) & 0x00ff00ff;
+        x = (x | x >> 8) & 0x0000ffff;
+        return x;
+    }
+
+    @Override
+    public int index(int row, int col) {
+        return rowBits[row] | colBits[col];
+    }
+
+    @Override
+    public int row(int index) {
+        int low = compact((index & (1 << 2 * shared) - 1) >> 1);
+        return wide ? low : low | index >> 2 * shared << shared;
+    }
+
+    @Override
+    public int col(int index) {
+        int low = compact(index & (1 << 2 * shared) - 1);
+        return wide ? low | index >> 2 * shared << shared : low;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,32 @@
+package maze;
+
+import adt.OffHeapArray;
+
+/**
+ * Holds the squares of a maze outside the Java heap, one byte per square,
+ * numbered row by row with long indexes. This allows mazes with more than
+ * 2^31 squares, and the garbage collector doesn't have to scan them.
+ */
+class OffHeapGridStorage implements GridStorage {
+    /** Looks up squares by the byte they are stored as */
+    private static final Square[] SQUARES = Square.values();
+
+    private int width;
+    /** Each square is stored as its ordinal */
+    private OffHeapArray squares;
+
+    OffHeapGridStorage(int width, int height) {
+        this.width = width;
+        squares = new OffHeapArray((long) width * height);
+    }
+
+    @Override
+    public Square get(int row, int col) {
+        return SQUARES[squares.getByte((long) row * width + col)];
+    }
+
+    @Override
+    public void set(int row, int col, Square square) {
+        squares.setByte((long) row * width + col, (byte) square.ordinal());
+    }
+}
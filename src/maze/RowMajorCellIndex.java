@@ -0,0 +1,34 @@
+package maze;
+
+/**
+ * Numbers squares row by row, as row * width + col.
+ */
+public class RowMajorCellIndex implements CellIndex {
+    private int width;
+    private int height;
+
+    public RowMajorCellIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    @Override
+    public int index(int row, int col) {
+        return row * width + col;
+    }
+
+    @Override
+    public int row(int index) {
+        return index / width;
+    }
+
+    @Override
+    public int col(int index) {
+        return index % width;
+    }
+
+    @Override
+    public int size() {
+        return width * height;
+    }
+}
@@ -0,0 +1,66 @@
+package maze;
+
+/**
+ * Numbers squares tile by tile, where each tile is a small square of the
+ * grid stored row by row. Moving up or down stays inside the tile most of
+ * the time, so it usually touches memory that is already cached. The grid
+ * is padded to whole tiles.
+ */
+public class TiledCellIndex implements CellIndex {
+    /** Tiles of 8 by 8 squares put 64 booleans in one cache line */
+    public static final int DEFAULT_TILE_SIZE = 8;
+
+    /** log2 of the tile size */
+    private int shift;
+    /** The number of tiles in each row of tiles */
+    private int tilesAcross;
+    private int size;
+    /** index(row, col) is rowOffsets[row] + colOffsets[col] */
+    private int[] rowOffsets;
+    private int[] colOffsets;
+
+    /**
+     * @param width The number of columns of the grid
+     * @param height The number of rows of the grid
+     * @param tileSize The width and height of each tile, a power of two
+     */
+    public TiledCellIndex(int width, int height, int tileSize) {
+        if (tileSize <= 0 || Integer.bitCount(tileSize) != 1) {
+            throw new IllegalArgumentException("Tile size must be a power of two");
+        }
+        shift = Integer.numberOfTrailingZeros(tileSize);
+        tilesAcross = (width + tileSize - 1) >> shift;
+        int tilesDown = (height + tileSize - 1) >> shift;
+        size = tilesAcross * tilesDown << 2 * shift;
+        rowOffsets = new int[height];
+        for (int r = 0; r < height; r++) {
+            rowOffsets[r] = ((r >> shift) * tilesAcross << 2 * shift) + ((r & tileSize - 1) << shift);
+        }
+        colOffsets = new int[width];
+        for (int c = 0; c < width; c++) {
+            colOffsets[c] = ((c >> shift) << 2 * shift) + (c & tileSize - 1);
+        }
+    }
+
+    @Override
+    public int index(int row, int col) {
+        return rowOffsets[row] + colOffsets[col];
+    }
+
+    @Override
+    public int row(int index) {
+        int tile = index >> 2 * shift;
+        return (tile / tilesAcross << shift) + ((index >> shift) & (1 << shift) - 1);
+    }
+
+    @Override
+    public int col(int index) {
+        int tile = index >> 2 * shift;
+        return (tile % tilesAcross << shift) + (index & (1 << shift) - 1);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -1,14 +1,16 @@
 package solver;
 
 import java.awt.Point;
+import java.util.ArrayList;
 import java.util.PriorityQueue;
 
+import maze.CellIndex;
 import maze.Maze;
 import maze.MazeNode;
 import maze.Square;
 import maze.WeightedMazeNode;
 
-public class AStarMazeSolver implements MazeSolver {
+public class AStarMazeSolver implements CheckpointableSolver {
     /** The maze to solve */
     private Maze maze;
     
@@ -26,16 +28,21 @@ public class AStarMazeSolver implements MazeSolver {
     private boolean terminated;
     /** Priority queue of locations to explore */
     private PriorityQueue<WeightedMazeNode> queue;
-    /** The mazes should be relatively small, so we use a 2d boolean array
-     * to store whether a location has been visited. visited[i][j] 
-     * corresponds to row i, column j. */
-    private boolean[][] visited;
+    /** Whether the state came from resume() rather than reset(), in which
+     * case solve() carries on from it */
+    private boolean resumed;
+    /** Whether a location has been visited. visited[cells.index(i, j)]
+     * corresponds to row i, column j, so it is laid out like the maze. */
+    private boolean[] visited;
+    /** The maze's numbering of its squares */
+    private CellIndex cells;
     
     /** Initializes an a star based maze solver
      * @param maze The maze to solve.
      */
     public AStarMazeSolver(Maze maze) {
        this.maze = maze;
+       cells = maze.getCellIndex();
        queue = new PriorityQueue<WeightedMazeNode>();
        reset();
     }
@@ -45,7 +52,7 @@ public class AStarMazeSolver implements MazeSolver {
      * @param node the node to find neighbors of
      */
     private void addNeighbors(WeightedMazeNode node) {
-        if (node == null || visited.length == 0 || visited[0].length == 0) {
+        if (node == null || visited.length == 0) {
             return;
         }
         for (int[] offset : ADJACENTS) {
@@ -53,7 +60,7 @@ public class AStarMazeSolver implements MazeSolver {
             int newRow = node.getRow() + offset[1];
             if (newCol < maze.getWidth() && newCol >= 0 &&
                     newRow < maze.getHeight() && newRow >= 0 &&
-                    !visited[newRow][newCol] && maze.at(newRow, newCol) != Square.WALL) {
+                    !visited[cells.index(newRow, newCol)] && maze.at(newRow, newCol) != Square.WALL) {
                 queue.add(new WeightedMazeNode(maze.at(newRow, newCol),
                         new Point(newCol, newRow), node,
                         node.getMovementCost()+1, heuristic(newRow, newCol)));
@@ -95,46 +102,22 @@ public class AStarMazeSolver implements MazeSolver {
      * maze wan't solvable, just return a string representation of the maze 
      * with no solution path. */
     public String getSolutionString() {
-        // get the initial string representation of the maze, without the path
-        String result = "";
-        for (int row = 0; row < maze.getHeight(); row++) {
-            for (int col = 0; col < maze.getWidth(); col++) {
-                result += maze.at(row, col).toString();
-            }
-            result += "\n";
-        }
-        
-        // ignore the first and last nodes of the solution, because those should 
-        // have finish and start symbols in the maze
-        MazeNode node = getSolution();
-        if (node != null) {
-            node = node.getPrevious();
-            while (node != null && node.getPrevious() != null) {
-                // replace the character at this node with an "s", accounting for newline chars
-                int charLoc = node.getRow() * (maze.getWidth()+1) + node.getCol();
-                result = result.substring(0, charLoc) +
-                        (maze.isTeleporter(node.getRow(), node.getCol()) ? "t" : "s") +
-                        result.substring(charLoc+1);
-                node = node.getPrevious();
-            }
-        }
-        return result;
+        return MazeStrings.solutionString(maze, getSolution());
     }
 
     @Override
     public String getSolverState() {
-        String result = "";
-        for (int row = 0; row < maze.getHeight(); row++) {
-            for (int col = 0; col < maze.getWidth(); col++) {
-                Square square = maze.at(row, col);
-                if (square == Square.START || square == Square.FINISH
-                        || !visited[row][col]) {
-                    result += maze.at(row, col).toString();
-                } else {
-                    result += "v";
-                }
+        return MazeStrings.solverState(maze, toGrid(visited));
+    }
+    
+    /** Converts visited state in the maze's layout to a 2d array, where
+     * result[i][j] corresponds to row i, column j */
+    private boolean[][] toGrid(boolean[] state) {
+        boolean[][] result = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int r = 0; r < result.length; r++) {
+            for (int c = 0; c < result[r].length; c++) {
+                result[r][c] = state[cells.index(r, c)];
             }
-            result += "\n";
         }
         return result;
     }
@@ -149,52 +132,58 @@ public class AStarMazeSolver implements MazeSolver {
     private int heuristic(int row, int col) {
         // if this calculation was more resource intensive we 
         // could add a memoization table
-        Point curPt = new Point(col, row);
-        int result = getManhattanDist(maze.getFinish(), curPt);
-        if (maze.getTeleporters() != null) {
-            // estimate the distance if we used teleporters
-            Point[] teles = maze.getTeleporters();
-            // the distance of the closer teleporter to our current position
-            int distToCurPos = Math.min(getManhattanDist(teles[0], curPt),
-                    getManhattanDist(teles[1], curPt));
-            // shortest distance from a teleporter to the finish 
-            int distToFinish = Math.min(getManhattanDist(teles[0], maze.getFinish()),
-                    getManhattanDist(teles[1], maze.getFinish()));
-            int totalTeleDist = distToCurPos + distToFinish + 1;
-            if (totalTeleDist < result) {
-                result = totalTeleDist;
-            }
-        }
+        int result = Heuristics.estimate(maze, row, col);
         return result >= 8 ? 8 : result;
-        
     }
-    
-    /** Returns the Manhattan distance between two points (the sum of the 
-     * differences of their coordinates) */
-    private int getManhattanDist(Point a, Point b) {
-        return Math.abs(a.x - b.x)+ Math.abs(a.y - b.y); 
-    }
-    
 
     @Override
     public void reset() {
+        resumed = false;
         queue = new PriorityQueue<WeightedMazeNode>();
-        visited = new boolean[maze.getHeight()][maze.getWidth()];
-        for (int r = 0; r < visited.length; r++) {
-            for (int c = 0; c < visited[r].length; c++) {
-                visited[r][c] = false;
-            }
+        visited = new boolean[maze.getWidth() * maze.getHeight() == 0 ? 0 : cells.size()];
+        // find the start location and add it to the queue, unless we already
+        // know the finish can't be reached from it
+        if (maze.canReachFinish(maze.getStart())) {
+            queue.add(new WeightedMazeNode(Square.START, maze.getStart(), null, 
+                    0, heuristic(maze.getStart().y, maze.getStart().x)));
         }
-        // find the start location and add it to the queue
-        queue.add(new WeightedMazeNode(Square.START, maze.getStart(), null, 
-                0, heuristic(maze.getStart().y, maze.getStart().x)));
         terminated = false;
     }
 
+    @Override
+    public SolverCheckpoint checkpoint() {
+        // checkpoints are always saved row by row, whatever the layout
+        return new SolverCheckpoint(SolverCheckpoint.ASTAR, maze, terminated, toGrid(visited),
+                new ArrayList<MazeNode>(queue), terminated ? finalNode : null);
+    }
+    
+    @Override
+    public void resume(SolverCheckpoint checkpoint) {
+        checkpoint.check(SolverCheckpoint.ASTAR, maze);
+        queue = new PriorityQueue<WeightedMazeNode>();
+        for (MazeNode node : checkpoint.getAgenda()) {
+            queue.add((WeightedMazeNode) node);
+        }
+        boolean[][] grid = checkpoint.copyVisited();
+        visited = new boolean[cells.size()];
+        for (int r = 0; r < grid.length; r++) {
+            for (int c = 0; c < grid[r].length; c++) {
+                visited[cells.index(r, c)] = grid[r][c];
+            }
+        }
+        terminated = checkpoint.isTerminated();
+        if (terminated) {
+            solvedBefore = true;
+            finalNode = (WeightedMazeNode) checkpoint.getFinalNode();
+        }
+        resumed = true;
+    }
+
     @Override
     /** Solves the maze if it hasn't been solved before. 
      * Postcondition: The solver will still be at the same step of the algorithm as
-     * it was before the call to solve().
+     * it was before the call to solve(). After resume(), the search carries
+     * on from the checkpoint instead of starting over.
      * @return Whether the maze was solvable or not
      */
     public boolean solve() {
@@ -202,8 +191,15 @@ public class AStarMazeSolver implements MazeSolver {
             // store the current state so we can go back to it later
             boolean prevTerminated = terminated;
             PriorityQueue<WeightedMazeNode> prevAgenda = queue;
-            boolean[][] prevVisited = visited;
-            reset();
+            boolean[] prevVisited = visited;
+            if (resumed) {
+                // the search before the checkpoint can't be redone, so
+                // finish it from a copy of the checkpoint's state
+                queue = new PriorityQueue<WeightedMazeNode>(prevAgenda);
+                visited = prevVisited.clone();
+            } else {
+                reset();
+            }
             while (!doneStepping()) {
                 step();
             }
@@ -218,7 +214,7 @@ public class AStarMazeSolver implements MazeSolver {
     public void step() {
         if (terminated) { return; }
         // remove elements until we find one that is unvisited
-        while (!queue.isEmpty() && visited[queue.peek().getLocation().y][queue.peek().getLocation().x]) {
+        while (!queue.isEmpty() && visited[cells.index(queue.peek().getRow(), queue.peek().getCol())]) {
             queue.remove();
         }
 
@@ -232,7 +228,7 @@ public class AStarMazeSolver implements MazeSolver {
         }
         
         WeightedMazeNode location = queue.remove();
-        visited[location.getRow()][location.getCol()] = true;
+        visited[cells.index(location.getRow(), location.getCol())] = true;
         if (location.getType() == Square.FINISH) {
             terminated = true;
             solvedBefore = true;
@@ -11,7 +11,7 @@ import maze.Square;
 import maze.WeightedMazeNode;
 import solver.MazeSolver;
 
-public class AgendaMazeSolver implements MazeSolver {
+public class AgendaMazeSolver implements CheckpointableSolver {
     /** Constant that specifies use of a stack-based solver */
     public static final char STACK = 's';
     /** Constant that specifies use of a queue-based solver */
@@ -33,6 +33,9 @@ public class AgendaMazeSolver implements MazeSolver {
     private boolean terminated;
     /** Agenda of locations to explore. */
     private Agenda<MazeNode> agenda;
+    /** Whether the state came from resume() rather than reset(), in which
+     * case solve() carries on from it */
+    private boolean resumed;
     /** The mazes should be relatively small, so we use a 2d boolean array
      * to store whether a location has been visited. visited[i][j] 
      * corresponds to row i, column j. */
@@ -117,50 +120,14 @@ public class AgendaMazeSolver implements MazeSolver {
      * representation of the maze with no solution path.
      */
     public String getSolutionString() {
-        // get the initial string representation of the maze, without the path
-        String result = "";
-        for (int row = 0; row < maze.getHeight(); row++) {
-            for (int col = 0; col < maze.getWidth(); col++) {
-                result += maze.at(row, col).toString();
-            }
-            result += "\n";
-        }
-        
-        // ignore the first and last nodes of the solution, because those should 
-        // have finish and start symbols in the maze
-        MazeNode node = getSolution();
-        if (node != null) {
-            node = node.getPrevious();
-            while (node != null && node.getPrevious() != null) {
-                // replace the character at this node with an "s", accounting for newline chars
-                int charLoc = node.getRow() * (maze.getWidth()+1) + node.getCol();
-                result = result.substring(0, charLoc) +
-                        (maze.isTeleporter(node.getRow(), node.getCol()) ? "t" : "s") +
-                        result.substring(charLoc+1);
-                node = node.getPrevious();
-            }
-        }
-        return result;
+        return MazeStrings.solutionString(maze, getSolution());
     }
 
     @Override
     /** Returns a string representation of the state of the maze solver, with
      * "v" representing visited squares. */
     public String getSolverState() {
-        String result = "";
-        for (int row = 0; row < maze.getHeight(); row++) {
-            for (int col = 0; col < maze.getWidth(); col++) {
-                Square square = maze.at(row, col);
-                if (square == Square.START || square == Square.FINISH
-                        || !visited[row][col]) {
-                    result += maze.at(row, col).toString();
-                } else {
-                    result += "v";
-                }
-            }
-            result += "\n";
-        }
-        return result;
+        return MazeStrings.solverState(maze, visited);
     }
 
     @Override
@@ -172,21 +139,67 @@ public class AgendaMazeSolver implements MazeSolver {
         } else {
             agenda = new MyQueue<MazeNode>();
         }
+        resumed = false;
         visited = new boolean[maze.getHeight()][maze.getWidth()];
         for (int r = 0; r < visited.length; r++) {
             for (int c = 0; c < visited[r].length; c++) {
                 visited[r][c] = false;
             }
         }
-        // find the start location and add it to the agenda
-        agenda.add(new MazeNode(Square.START, maze.getStart(), null));
+        // find the start location and add it to the agenda, unless we already
+        // know the finish can't be reached from it
+        if (maze.canReachFinish(maze.getStart())) {
+            agenda.add(new MazeNode(Square.START, maze.getStart(), null));
+        }
         terminated = false;
     }
     
+    /** Returns the kind of agenda this solver uses, either STACK or QUEUE */
+    private char getBase() {
+        return agenda instanceof MyStack ? STACK : QUEUE;
+    }
+    
+    @Override
+    public SolverCheckpoint checkpoint() {
+        return new SolverCheckpoint(getBase(), maze, terminated, SolverCheckpoint.copy(visited),
+                agenda.toList(), terminated ? finalNode : null);
+    }
+    
+    @Override
+    public void resume(SolverCheckpoint checkpoint) {
+        checkpoint.check(getBase(), maze);
+        if (agenda instanceof MyStack) {
+            agenda = new MyStack<MazeNode>();
+        } else {
+            agenda = new MyQueue<MazeNode>();
+        }
+        for (MazeNode node : checkpoint.getAgenda()) {
+            agenda.add(node);
+        }
+        visited = checkpoint.copyVisited();
+        terminated = checkpoint.isTerminated();
+        if (terminated) {
+            solvedBefore = true;
+            finalNode = checkpoint.getFinalNode();
+        }
+        resumed = true;
+    }
+    
+    /** Returns a new agenda of the same kind holding the same locations */
+    private Agenda<MazeNode> copyAgenda() {
+        Agenda<MazeNode> copy = agenda instanceof MyStack ? new MyStack<MazeNode>()
+                : new MyQueue<MazeNode>();
+        for (MazeNode node : agenda.toList()) {
+            copy.add(node);
+        }
+        return copy;
+    }
+    
     @Override
     /** Solves the maze if it hasn't been solved before. 
      * Postcondition: The solver will still be at the same step of the algorithm as
-     * it was before the call to solve().
+     * it was before the call to solve(). After resume(), the search carries
+     * on from the checkpoint instead of starting over.
      * @return Whether the maze was solvable or not
      */
     public boolean solve() {
@@ -195,7 +208,17 @@ public class AgendaMazeSolver implements MazeSolver {
             boolean prevTerminated = terminated;
             Agenda<MazeNode> prevAgenda = agenda;
             boolean[][] prevVisited = visited;
-            reset();
+            if (resumed) {
+                // the search before the checkpoint can't be redone, so
+                // finish it from a copy of the checkpoint's state
+                agenda = copyAgenda();
+                visited = new boolean[prevVisited.length][];
+                for (int r = 0; r < visited.length; r++) {
+                    visited[r] = prevVisited[r].clone();
+                }
+            } else {
+                reset();
+            }
             while (!doneStepping()) {
                 step();
             }
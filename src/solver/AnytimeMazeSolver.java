@@ -0,0 +1,449 @@
+package solver;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+import maze.CellIndex;
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * An anytime repairing A* (ARA*) solver. The first iteration is a weighted
+ * A* search, which orders squares by cost + epsilon * estimate and finds a
+ * path at most epsilon times longer than the shortest one, usually much
+ * faster than plain A*. Each later iteration lowers epsilon and improves the
+ * path, reusing the costs found so far: only squares whose cost went down
+ * since they were explored are searched again. When epsilon reaches 1 the
+ * path is the shortest. solve() stops at a time budget and keeps the best
+ * path found by then, and getBound() says how far from the shortest it can be.
+ */
+public class AnytimeMazeSolver implements MazeSolver {
+    /** The epsilon of the first iteration if none is given */
+    public static final double DEFAULT_EPSILON = 2.5;
+    /** How much epsilon is lowered after each iteration if not given */
+    public static final double DEFAULT_DECREASE = 0.5;
+    /** Cost of a square that hasn't been reached */
+    private static final int INFINITY = Integer.MAX_VALUE;
+    /** How many steps solve() takes between checks of the clock */
+    private static final int STEPS_PER_CHECK = 256;
+
+    /** The maze to solve */
+    private Maze maze;
+    /** The maze's numbering of its squares, which the search state uses too */
+    private CellIndex cells;
+    /** How long solve() may search, in milliseconds */
+    private long timeBudget;
+    /** The epsilon of the first iteration */
+    private double initialEpsilon;
+    /** How much epsilon is lowered after each iteration */
+    private double decrease;
+    /** The cells of the two teleporters, or -1 if there are none */
+    private int teleporterA;
+    private int teleporterB;
+    /** estimates[cell] is the estimated cost to the nearest finish, or -1 if
+     * it hasn't been needed yet */
+    private int[] estimates;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called, or if step() has finished an iteration */
+    private boolean solvedBefore;
+
+    /** The last node of the best path found. If finalNode is null and
+     * solvedBefore is true, then either there was no solution to the maze,
+     * or no path was found within the time budget */
+    private MazeNode finalNode;
+    /** How many times longer than the shortest path finalNode can be */
+    private double bound;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The state of the search */
+    private Search search;
+
+    /** The state of an ARA* search. Cells are numbered by the maze's CellIndex. */
+    private static class Search {
+        /** The epsilon of the current iteration */
+        private double epsilon;
+        /** The epsilon of the last finished iteration, or infinity if no
+         * iteration has finished */
+        private double finishedEpsilon;
+        /** cost[cell] is the cost of the cheapest path to cell found so far */
+        private int[] cost;
+        /** parent[cell] is the cell before cell on that path, or -1 */
+        private int[] parent;
+        /** Squares to explore. Entries are left in the queue when a cheaper
+         * one is added for the same cell and skipped when they come out */
+        private PriorityQueue<Entry> open;
+        /** inOpen[cell] is whether cell has an entry in open for its cost */
+        private boolean[] inOpen;
+        /** closed[cell] is whether cell has been explored this iteration */
+        private boolean[] closed;
+        /** Explored cells whose cost went down this iteration. They are
+         * explored again in the next iteration */
+        private int[] incons;
+        private int inconsCount;
+        private boolean[] inIncons;
+        /** The cheapest finish reached so far, or -1 */
+        private int best;
+    }
+
+    /** An entry of the open list */
+    private static class Entry implements Comparable<Entry> {
+        private int cell;
+        /** The cost of the cell when the entry was added */
+        private int cost;
+        /** cost + epsilon * estimate */
+        private double key;
+
+        private Entry(int cell, int cost, double key) {
+            this.cell = cell;
+            this.cost = cost;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = Double.compare(key, other.key);
+            // among equal keys, prefer the square furthest from the start
+            return result != 0 ? result : other.cost - cost;
+        }
+    }
+
+    /** Initializes an anytime solver with the default epsilon
+     * @param maze The maze to solve.
+     * @param timeBudget How long solve() may search, in milliseconds
+     */
+    public AnytimeMazeSolver(Maze maze, long timeBudget) {
+        this(maze, timeBudget, DEFAULT_EPSILON, DEFAULT_DECREASE);
+    }
+
+    /** Initializes an anytime solver
+     * @param maze The maze to solve.
+     * @param timeBudget How long solve() may search, in milliseconds
+     * @param epsilon The epsilon of the first iteration, at least 1
+     * @param decrease How much epsilon is lowered after each iteration
+     */
+    public AnytimeMazeSolver(Maze maze, long timeBudget, double epsilon, double decrease) {
+        if (timeBudget <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive");
+        }
+        if (!(epsilon >= 1)) {
+            throw new IllegalArgumentException("Epsilon must be at least 1");
+        }
+        if (!(decrease > 0)) {
+            throw new IllegalArgumentException("Epsilon decrease must be positive");
+        }
+        this.maze = maze;
+        this.timeBudget = timeBudget;
+        this.initialEpsilon = epsilon;
+        this.decrease = decrease;
+        this.cells = maze.getCellIndex();
+        Point[] teleporters = maze.getTeleporters();
+        teleporterA = teleporters == null ? -1 : cells.index(teleporters[0].y, teleporters[0].x);
+        teleporterB = teleporters == null ? -1 : cells.index(teleporters[1].y, teleporters[1].x);
+        estimates = new int[cellCount()];
+        Arrays.fill(estimates, -1);
+        bound = Double.POSITIVE_INFINITY;
+        reset();
+    }
+
+    /** Returns the estimated cost from cell to the nearest finish */
+    private int estimate(int cell) {
+        if (estimates[cell] < 0) {
+            estimates[cell] = Heuristics.estimate(maze, cells.row(cell), cells.col(cell));
+        }
+        return estimates[cell];
+    }
+
+    /** Adds an entry for cell with its current cost to the open list */
+    private void open(int cell) {
+        int cost = search.cost[cell];
+        search.open.add(new Entry(cell, cost, cost + search.epsilon * estimate(cell)));
+        search.inOpen[cell] = true;
+    }
+
+    /** Returns whether the entry is still the latest one for its cell */
+    private boolean isCurrent(Entry entry) {
+        return search.inOpen[entry.cell] && entry.cost == search.cost[entry.cell];
+    }
+
+    /**
+     * Updates the cost of a neighbor reached from cell, if this path to it
+     * is cheaper. Cells already explored this iteration are put aside for
+     * the next iteration instead of being explored again.
+     */
+    private void relax(int cell, int neighbor) {
+        int newCost = search.cost[cell] + 1;
+        if (newCost >= search.cost[neighbor]) {
+            return;
+        }
+        search.cost[neighbor] = newCost;
+        search.parent[neighbor] = cell;
+        if (maze.at(cells.row(neighbor), cells.col(neighbor)) == Square.FINISH
+                && (search.best == -1 || newCost < search.cost[search.best])) {
+            search.best = neighbor;
+        }
+        if (!search.closed[neighbor]) {
+            open(neighbor);
+        } else if (!search.inIncons[neighbor]) {
+            if (search.inconsCount == search.incons.length) {
+                search.incons = Arrays.copyOf(search.incons, search.inconsCount * 2);
+            }
+            search.incons[search.inconsCount++] = neighbor;
+            search.inIncons[neighbor] = true;
+        }
+    }
+
+    /** Returns the smallest cost + estimate of the squares left to explore,
+     * which is at most the length of the shortest path */
+    private long lowerBound() {
+        long result = Long.MAX_VALUE;
+        for (Entry entry : search.open) {
+            if (isCurrent(entry)) {
+                result = Math.min(result, (long) entry.cost + estimate(entry.cell));
+            }
+        }
+        for (int i = 0; i < search.inconsCount; i++) {
+            int cell = search.incons[i];
+            result = Math.min(result, (long) search.cost[cell] + estimate(cell));
+        }
+        return result;
+    }
+
+    /** Returns how many times longer than the shortest path the best path
+     * found so far can be */
+    private double currentBound() {
+        long lower = lowerBound();
+        double result = search.finishedEpsilon;
+        if (lower == Long.MAX_VALUE) {
+            // nothing is left to explore, so no shorter path exists
+            result = 1;
+        } else if (lower > 0) {
+            result = Math.min(result, (double) search.cost[search.best] / lower);
+        }
+        return Math.max(1, result);
+    }
+
+    /** Returns the best path found so far as a linked list of nodes */
+    private MazeNode bestPath() {
+        int[] path = new int[search.cost[search.best] + 1];
+        int count = 0;
+        for (int cell = search.best; cell != -1; cell = search.parent[cell]) {
+            path[count++] = cell;
+        }
+        MazeNode result = null;
+        for (int i = count - 1; i >= 0; i--) {
+            int row = cells.row(path[i]);
+            int col = cells.col(path[i]);
+            result = new MazeNode(maze.at(row, col), new Point(col, row), result);
+        }
+        return result;
+    }
+
+    /** Keeps the best path found so far with the passed in bound, unless
+     * an earlier one has a tighter bound */
+    private void publish(double newBound) {
+        if (!solvedBefore || finalNode == null || newBound <= bound) {
+            solvedBefore = true;
+            finalNode = bestPath();
+            bound = newBound;
+        }
+    }
+
+    /**
+     * Finishes the current iteration. If the path can still be improved,
+     * lowers epsilon and starts the next iteration with the squares left
+     * to explore and the ones put aside.
+     */
+    private void finishIteration() {
+        search.finishedEpsilon = search.epsilon;
+        if (search.best == -1) {
+            // every reachable square was explored without reaching a finish
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            bound = 1;
+            return;
+        }
+        double newBound = currentBound();
+        publish(newBound);
+        if (newBound <= 1) {
+            terminated = true;
+            return;
+        }
+        search.epsilon = Math.max(1, search.epsilon - decrease);
+        PriorityQueue<Entry> oldOpen = search.open;
+        search.open = new PriorityQueue<Entry>();
+        Arrays.fill(search.inOpen, false);
+        for (Entry entry : oldOpen) {
+            if (entry.cost == search.cost[entry.cell] && !search.inOpen[entry.cell]
+                    && !search.closed[entry.cell]) {
+                open(entry.cell);
+            }
+        }
+        for (int i = 0; i < search.inconsCount; i++) {
+            search.inIncons[search.incons[i]] = false;
+            if (!search.inOpen[search.incons[i]]) {
+                open(search.incons[i]);
+            }
+        }
+        search.inconsCount = 0;
+        Arrays.fill(search.closed, false);
+    }
+
+    /** Returns how many times longer than the shortest path the solution can
+     * be. This is 1 once the solution is known to be the shortest, or there
+     * is known to be no solution, and infinity if no path has been found. */
+    public double getBound() {
+        return bound;
+    }
+
+    /** Returns the epsilon of the iteration the step function is on */
+    public double getEpsilon() {
+        return search.epsilon;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Anytime A* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Shows the squares explored in the current iteration */
+    public String getSolverState() {
+        boolean[][] explored = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                explored[r][c] = search.closed[cells.index(r, c)];
+            }
+        }
+        return MazeStrings.solverState(maze, explored);
+    }
+
+    /** Returns the length of the arrays of per-square state */
+    private int cellCount() {
+        return maze.getWidth() * maze.getHeight() == 0 ? 0 : cells.size();
+    }
+
+    @Override
+    public void reset() {
+        int count = cellCount();
+        search = new Search();
+        search.epsilon = initialEpsilon;
+        search.finishedEpsilon = Double.POSITIVE_INFINITY;
+        search.cost = new int[count];
+        Arrays.fill(search.cost, INFINITY);
+        search.parent = new int[count];
+        Arrays.fill(search.parent, -1);
+        search.open = new PriorityQueue<Entry>();
+        search.inOpen = new boolean[count];
+        search.closed = new boolean[count];
+        search.incons = new int[16];
+        search.inIncons = new boolean[count];
+        search.best = -1;
+        // add the start to the open list, unless we already know the
+        // finish can't be reached from it
+        if (maze.canReachFinish(maze.getStart())) {
+            int start = cells.index(maze.getStart().y, maze.getStart().x);
+            search.cost[start] = 0;
+            open(start);
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Searches until the path is known to be the shortest or the time
+     * budget runs out, if the maze hasn't been solved before. The best path
+     * found is kept along with its bound.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether a path was found
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            long deadline = System.nanoTime() + timeBudget * 1000000L;
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            Search prevSearch = search;
+            reset();
+            int steps = 0;
+            while (!doneStepping()) {
+                step();
+                if (++steps % STEPS_PER_CHECK == 0 && System.nanoTime() - deadline >= 0) {
+                    break;
+                }
+            }
+            if (!terminated) {
+                // out of time, so keep whatever this iteration has found
+                if (search.best != -1) {
+                    publish(currentBound());
+                }
+                solvedBefore = true;
+            }
+            terminated = prevTerminated;
+            search = prevSearch;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Explores one square, or finishes the iteration if no square left
+     * can lead to a shorter path at the current epsilon. Stepping isn't
+     * limited by the time budget and goes on until the path is the shortest. */
+    public void step() {
+        if (terminated) { return; }
+        // remove entries until we find one that is current
+        while (!search.open.isEmpty() && !isCurrent(search.open.peek())) {
+            search.open.remove();
+        }
+        if (search.open.isEmpty() || (search.best != -1
+                && search.cost[search.best] <= search.open.peek().key)) {
+            finishIteration();
+            return;
+        }
+
+        int cell = search.open.remove().cell;
+        search.inOpen[cell] = false;
+        search.closed[cell] = true;
+        int row = cells.row(cell);
+        int col = cells.col(cell);
+        for (int[] offset : ADJACENTS) {
+            int newCol = col + offset[0];
+            int newRow = row + offset[1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    maze.at(newRow, newCol) != Square.WALL) {
+                relax(cell, cells.index(newRow, newCol));
+            }
+        }
+        // a teleporter also reaches the other teleporter
+        if (cell == teleporterA) {
+            relax(cell, teleporterB);
+        } else if (cell == teleporterB) {
+            relax(cell, teleporterA);
+        }
+    }
+}
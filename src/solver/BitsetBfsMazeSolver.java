@@ -0,0 +1,326 @@
+package solver;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * A breadth first solver that stores the open squares, the visited squares
+ * and the frontier as bitsets, with each row packed into longs. Each step
+ * expands the whole frontier by one move, 64 squares at a time, using shifts
+ * for moves along a row and whole words for moves between rows. Teleporters
+ * are handled separately after each level. Only the words of the frontier
+ * that have a square set are kept, and the frontier of every level is kept
+ * so a shortest path can be traced back once a finish is reached.
+ */
+public class BitsetBfsMazeSolver implements MazeSolver {
+    /** The maze to solve */
+    private Maze maze;
+    /** The number of longs used for each row */
+    private int words;
+    /** Bit c of open[r * words + c / 64] is set if row r, column c isn't a wall */
+    private long[] open;
+    /** The finishes of the maze, in the same layout as open */
+    private long[] goals;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The squares that have been reached, in the same layout as open */
+    private long[] visited;
+    /** The frontier of each level so far, where level 0 is the starts and
+     * the last level is the current frontier */
+    private List<Level> levels;
+    /** Working space for the next frontier, all zero between steps */
+    private long[] scratch;
+
+    /** The words of a frontier that have at least one square set */
+    private static class Level {
+        /** The positions of the words in the same layout as open, in
+         * increasing order */
+        private int[] index;
+        /** bits[i] is the word at position index[i] */
+        private long[] bits;
+    }
+
+    /** Initializes a bitset based breadth first solver
+     * @param maze The maze to solve.
+     */
+    public BitsetBfsMazeSolver(Maze maze) {
+        this.maze = maze;
+        words = (maze.getWidth() + 63) / 64;
+        open = new long[maze.getHeight() * words];
+        goals = new long[open.length];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                if (maze.at(r, c) != Square.WALL) {
+                    set(open, r, c);
+                }
+                if (maze.at(r, c) == Square.FINISH) {
+                    set(goals, r, c);
+                }
+            }
+        }
+        reset();
+    }
+
+    /** Sets the bit for row, col */
+    private void set(long[] bits, int row, int col) {
+        bits[row * words + (col >>> 6)] |= 1L << col;
+    }
+
+    /** Returns the bit for row, col */
+    private boolean get(long[] bits, int row, int col) {
+        return (bits[row * words + (col >>> 6)] & 1L << col) != 0;
+    }
+
+    /**
+     * Moves every square of the frontier one step in each direction and
+     * keeps the open squares that haven't been visited yet, marking them
+     * as visited.
+     * @return The next frontier
+     */
+    private Level expand() {
+        Level frontier = levels.get(levels.size() - 1);
+        int last = words - 1;
+        int height = maze.getHeight();
+        // the words that might have a square set in the next frontier: five
+        // per word of the frontier, and one per teleporter
+        int[] touched = new int[frontier.index.length * 5 + 2];
+        int count = 0;
+        for (int k = 0; k < frontier.index.length; k++) {
+            int i = frontier.index[k];
+            long cur = frontier.bits[k];
+            int row = i / words;
+            int w = i - row * words;
+            // moving right shifts bits up, carrying the top bit into the
+            // next word. Moving left is the reverse
+            scratch[i] |= cur << 1 | cur >>> 1;
+            touched[count++] = i;
+            if (w > 0) {
+                scratch[i - 1] |= cur << 63;
+                touched[count++] = i - 1;
+            }
+            if (w < last) {
+                scratch[i + 1] |= cur >>> 63;
+                touched[count++] = i + 1;
+            }
+            if (row > 0) {
+                scratch[i - words] |= cur;
+                touched[count++] = i - words;
+            }
+            if (row < height - 1) {
+                scratch[i + words] |= cur;
+                touched[count++] = i + words;
+            }
+        }
+        // a teleporter in the frontier reaches the other teleporter
+        Point[] teleporters = maze.getTeleporters();
+        if (teleporters != null) {
+            for (int t = 0; t < 2; t++) {
+                Point from = teleporters[t];
+                Point to = teleporters[1 - t];
+                if (inLevel(frontier, from.y, from.x)) {
+                    set(scratch, to.y, to.x);
+                    touched[count++] = to.y * words + (to.x >>> 6);
+                }
+            }
+        }
+        return takeLevel(touched, count);
+    }
+
+    /** Masks the touched words of scratch with the open, unvisited squares,
+     * moves the ones with squares left into a level, marks them visited, and
+     * clears scratch */
+    private Level takeLevel(int[] touched, int count) {
+        // sorting keeps the level in order, so it can be binary searched
+        Arrays.sort(touched, 0, count);
+        int[] index = new int[count];
+        long[] bits = new long[count];
+        int kept = 0;
+        for (int k = 0; k < count; k++) {
+            int i = touched[k];
+            long reached = scratch[i] & open[i] & ~visited[i];
+            // clearing the word also skips any repeats of it in touched
+            scratch[i] = 0;
+            if (reached != 0) {
+                visited[i] |= reached;
+                index[kept] = i;
+                bits[kept] = reached;
+                kept++;
+            }
+        }
+        Level level = new Level();
+        level.index = Arrays.copyOf(index, kept);
+        level.bits = Arrays.copyOf(bits, kept);
+        return level;
+    }
+
+    /** Returns whether row, col is set in the level's frontier */
+    private boolean inLevel(Level level, int row, int col) {
+        int k = Arrays.binarySearch(level.index, row * words + (col >>> 6));
+        return k >= 0 && (level.bits[k] & 1L << col) != 0;
+    }
+
+    /**
+     * Traces a path back from a square of the latest frontier, choosing at
+     * each level a square of the previous frontier that is one move away.
+     * @param end A square of the latest frontier, in the format x = col, y = row
+     * @return The last node of the path
+     */
+    private MazeNode tracePath(Point end) {
+        Point[] path = new Point[levels.size()];
+        path[path.length - 1] = end;
+        for (int k = path.length - 2; k >= 0; k--) {
+            Point cur = path[k + 1];
+            Level level = levels.get(k);
+            for (int[] offset : ADJACENTS) {
+                int col = cur.x + offset[0];
+                int row = cur.y + offset[1];
+                if (col >= 0 && col < maze.getWidth() && row >= 0 && row < maze.getHeight()
+                        && inLevel(level, row, col)) {
+                    path[k] = new Point(col, row);
+                    break;
+                }
+            }
+            if (path[k] == null) {
+                // the only way here was through the other teleporter
+                Point[] teleporters = maze.getTeleporters();
+                path[k] = new Point(teleporters[0].equals(cur) ? teleporters[1] : teleporters[0]);
+            }
+        }
+        MazeNode result = null;
+        for (Point loc : path) {
+            result = new MazeNode(maze.at(loc.y, loc.x), loc, result);
+        }
+        return result;
+    }
+
+    /** Returns a reached finish in the frontier, or null if there is none */
+    private Point findGoal(Level frontier) {
+        for (int k = 0; k < frontier.index.length; k++) {
+            int i = frontier.index[k];
+            long found = frontier.bits[k] & goals[i];
+            if (found != 0) {
+                return new Point((i % words) * 64 + Long.numberOfTrailingZeros(found), i / words);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Bitset BFS Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    public String getSolverState() {
+        boolean[][] reached = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                reached[r][c] = get(visited, r, c);
+            }
+        }
+        return MazeStrings.solverState(maze, reached);
+    }
+
+    @Override
+    public void reset() {
+        visited = new long[open.length];
+        scratch = new long[open.length];
+        levels = new ArrayList<Level>();
+        // the starts make up the first frontier, unless we already know
+        // the finish can't be reached from them
+        int[] touched = new int[maze.getStarts().length];
+        int count = 0;
+        for (Point start : maze.getStarts()) {
+            if (maze.canReachFinish(start)) {
+                set(scratch, start.y, start.x);
+                touched[count++] = start.y * words + (start.x >>> 6);
+            }
+        }
+        levels.add(takeLevel(touched, count));
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            long[] prevVisited = visited;
+            List<Level> prevLevels = levels;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            visited = prevVisited;
+            levels = prevLevels;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Checks the frontier for a finish, then expands it by one level. */
+    public void step() {
+        if (terminated) { return; }
+        Point goal = findGoal(levels.get(levels.size() - 1));
+        if (goal != null) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = tracePath(goal);
+            return;
+        }
+
+        Level next = expand();
+        // if nothing new was reached, then every reachable square has been
+        // visited, so the maze is unsolvable
+        if (next.index.length == 0) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+        levels.add(next);
+    }
+}
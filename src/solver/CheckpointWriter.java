@@ -0,0 +1,111 @@
+package solver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes solver checkpoints to a file on a background thread, so saving
+ * doesn't stall the search. Each checkpoint is written to a temporary file
+ * and then moved over the old one, so the file always holds a complete
+ * checkpoint. If checkpoints are submitted faster than they can be written,
+ * only the newest waiting one is written.
+ */
+public class CheckpointWriter {
+    /** The file checkpoints are saved to */
+    private File file;
+    /** The thread that writes the checkpoints */
+    private ExecutorService executor;
+    /** The newest checkpoint that hasn't been written yet, or null */
+    private AtomicReference<SolverCheckpoint> pending;
+    /** The first error hit while writing, or null */
+    private volatile IOException error;
+
+    /** Creates a writer that saves checkpoints to the passed in file */
+    public CheckpointWriter(File file) {
+        this.file = file;
+        this.pending = new AtomicReference<SolverCheckpoint>();
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Queues a checkpoint to be written, replacing any checkpoint that is
+     * still waiting to be written */
+    public void submit(SolverCheckpoint checkpoint) {
+        if (pending.getAndSet(checkpoint) == null) {
+            executor.execute(this::writePending);
+        }
+    }
+
+    /** Writes the newest waiting checkpoint, if there is one */
+    private void writePending() {
+        SolverCheckpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                checkpoint.write(out);
+            } finally {
+                out.close();
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Steps the solver until it is done, submitting a checkpoint every
+     * interval steps and once more at the end.
+     * @param solver The solver to run
+     * @param interval The number of steps between checkpoints
+     */
+    public void run(CheckpointableSolver solver, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        long steps = 0;
+        while (!solver.doneStepping()) {
+            solver.step();
+            if (++steps % interval == 0) {
+                submit(solver.checkpoint());
+            }
+        }
+        submit(solver.checkpoint());
+    }
+
+    /**
+     * Waits for any waiting checkpoint to be written and stops the
+     * background thread.
+     * @throws IOException If writing any checkpoint failed
+     */
+    public void close() throws IOException {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+}
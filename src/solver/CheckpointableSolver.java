@@ -0,0 +1,15 @@
+package solver;
+
+/**
+ * A solver whose search state can be saved part way through and resumed
+ * later, possibly by a different solver object.
+ */
+public interface CheckpointableSolver extends MazeSolver {
+    /** Returns a snapshot of the current state of the step function */
+    public SolverCheckpoint checkpoint();
+    /** Replaces the state of the step function with the snapshot. Until the
+     * next reset(), solve() and getSolution() carry on from the snapshot
+     * rather than starting over. Throws an IllegalArgumentException if it
+     * came from a different kind of solver or a different maze. */
+    public void resume(SolverCheckpoint checkpoint);
+}
@@ -0,0 +1,211 @@
+package solver;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import maze.JunctionGraph;
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+import maze.WeightedMazeNode;
+
+/**
+ * An A* solver that searches the junction graph of the maze instead of its
+ * individual squares. Dead ends are never explored and each corridor is
+ * crossed in a single step, so mazes made mostly of narrow passages take
+ * far fewer steps to solve. The solution is expanded back to one node per
+ * square.
+ */
+public class CorridorMazeSolver implements MazeSolver {
+    /** The maze to solve */
+    private Maze maze;
+    /** The junction graph of the maze, fetched again on every reset since
+     * the maze drops it when a square changes */
+    private JunctionGraph graph;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, with one node per square. If finalNode
+     * is null and solvedBefore is true, then there was no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** Priority queue of junctions to explore. Each node's location is the
+     * location of a junction, and its previous node is the junction before it */
+    private PriorityQueue<WeightedMazeNode> queue;
+    /** visited[n] is whether junction n has been explored */
+    private boolean[] visited;
+
+    /** Initializes a solver that searches the junction graph of the maze
+     * @param maze The maze to solve.
+     */
+    public CorridorMazeSolver(Maze maze) {
+        this.maze = maze;
+        reset();
+    }
+
+    /**
+     * Adds the junctions at the other end of each corridor leaving the node
+     * to the queue.
+     * @param node the node to find neighbors of
+     * @param junction the junction of the graph at node
+     */
+    private void addNeighbors(WeightedMazeNode node, int junction) {
+        for (JunctionGraph.Edge edge : graph.getEdges(junction)) {
+            if (!visited[edge.getTo()]) {
+                Point newLoc = graph.getLocation(edge.getTo());
+                queue.add(new WeightedMazeNode(maze.at(newLoc.y, newLoc.x), newLoc, node,
+                        node.getMovementCost() + edge.getWeight(),
+                        Heuristics.estimate(maze, newLoc.y, newLoc.x)));
+            }
+        }
+    }
+
+    /**
+     * Expands a path of junctions into a path with one node per square,
+     * walking the cells of the corridor between each pair of junctions.
+     * @param last The last junction of the path
+     * @return The last node of the expanded path
+     */
+    private MazeNode expand(WeightedMazeNode last) {
+        List<WeightedMazeNode> junctions = new ArrayList<WeightedMazeNode>();
+        for (MazeNode node = last; node != null; node = node.getPrevious()) {
+            junctions.add((WeightedMazeNode) node);
+        }
+        WeightedMazeNode first = junctions.get(junctions.size() - 1);
+        MazeNode result = new MazeNode(first.getType(), first.getLocation(), null);
+        for (int i = junctions.size() - 1; i > 0; i--) {
+            WeightedMazeNode from = junctions.get(i);
+            WeightedMazeNode to = junctions.get(i - 1);
+            // the corridor taken is the one whose length matches the
+            // difference in movement cost
+            int fromJunction = graph.nodeAt(from.getLocation());
+            int toJunction = graph.nodeAt(to.getLocation());
+            int weight = to.getMovementCost() - from.getMovementCost();
+            for (JunctionGraph.Edge edge : graph.getEdges(fromJunction)) {
+                if (edge.getTo() == toJunction && edge.getWeight() == weight) {
+                    for (int cell : edge.getCells()) {
+                        Point loc = graph.toPoint(cell);
+                        result = new MazeNode(maze.at(loc.y, loc.x), loc, result);
+                    }
+                    break;
+                }
+            }
+            result = new MazeNode(to.getType(), to.getLocation(), result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Corridor A* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Returns a string representation of the state of the maze solver, with
+     * "v" representing explored junctions. */
+    public String getSolverState() {
+        boolean[][] explored = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int junction = 0; junction < visited.length; junction++) {
+            if (visited[junction]) {
+                Point loc = graph.getLocation(junction);
+                explored[loc.y][loc.x] = true;
+            }
+        }
+        return MazeStrings.solverState(maze, explored);
+    }
+
+    @Override
+    public void reset() {
+        graph = maze.getJunctionGraph();
+        queue = new PriorityQueue<WeightedMazeNode>();
+        visited = new boolean[graph.getNodeCount()];
+        // find the start junction and add it to the queue, unless we already
+        // know the finish can't be reached from it
+        if (maze.canReachFinish(maze.getStart())) {
+            queue.add(new WeightedMazeNode(Square.START, maze.getStart(), null,
+                    0, Heuristics.estimate(maze, maze.getStart().y, maze.getStart().x)));
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            JunctionGraph prevGraph = graph;
+            PriorityQueue<WeightedMazeNode> prevQueue = queue;
+            boolean[] prevVisited = visited;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            graph = prevGraph;
+            queue = prevQueue;
+            visited = prevVisited;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    public void step() {
+        if (terminated) { return; }
+        // remove elements until we find one that is unvisited
+        while (!queue.isEmpty() && visited[graph.nodeAt(queue.peek().getLocation())]) {
+            queue.remove();
+        }
+
+        // if queue is empty, then all reachable junctions have been visited,
+        // so the maze is unsolvable
+        if (queue.isEmpty()) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+
+        WeightedMazeNode location = queue.remove();
+        int junction = graph.nodeAt(location.getLocation());
+        visited[junction] = true;
+        if (location.getType() == Square.FINISH) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = expand(location);
+        } else {
+            addNeighbors(location, junction);
+        }
+    }
+}
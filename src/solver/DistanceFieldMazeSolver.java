@@ -0,0 +1,179 @@
+package solver;
+
+import java.awt.Point;
+
+import maze.DistanceField;
+import maze.Maze;
+import maze.MazeNode;
+
+/**
+ * A solver that follows the maze's distance field from the start down to
+ * the finish. The field is built once per maze and shared by every solver
+ * of that maze, so after the first query each solution only costs one step
+ * per square of the path. A solver can start anywhere in the maze, and
+ * pathFrom() answers a query from any location without stepping.
+ */
+public class DistanceFieldMazeSolver implements MazeSolver {
+    /** The maze to solve */
+    private Maze maze;
+    /** The location to start from, in the format x = col, y = row */
+    private Point start;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was 
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The distance field of the maze, or null if the first step hasn't been taken */
+    private DistanceField field;
+    /** The end of the path followed so far */
+    private MazeNode current;
+
+    /** Initializes a solver that follows the distance field of the maze
+     * @param maze The maze to solve.
+     */
+    public DistanceFieldMazeSolver(Maze maze) {
+        this(maze, maze.getStart());
+    }
+
+    /** Initializes a solver that follows the distance field of the maze
+     * from the passed in location instead of the maze's start
+     * @param maze The maze to solve.
+     * @param start The location to start from, in the format x = col, y = row
+     */
+    public DistanceFieldMazeSolver(Maze maze, Point start) {
+        this.maze = maze;
+        this.start = new Point(start);
+        reset();
+    }
+
+    /**
+     * Returns a shortest path from any location to the nearest finish,
+     * following the maze's distance field.
+     * @param from The location to start from, in the format x = col, y = row
+     * @return The last node of the path, or null if no finish can be reached
+     */
+    public MazeNode pathFrom(Point from) {
+        DistanceField distances = maze.getDistanceField();
+        if (distances.distance(from.y, from.x) == DistanceField.UNREACHABLE) {
+            return null;
+        }
+        MazeNode result = new MazeNode(maze.at(from.y, from.x), new Point(from), null);
+        while (distances.distance(result.getRow(), result.getCol()) > 0) {
+            Point next = distances.nextStep(result.getLocation());
+            if (next == null) {
+                // no neighbor is closer, so the field doesn't fit the maze
+                return null;
+            }
+            result = new MazeNode(maze.at(next.y, next.x), next, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Distance Field Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Returns a string representation of the state of the maze solver, with
+     * "v" representing the squares of the path followed so far. */
+    public String getSolverState() {
+        boolean[][] followed = new boolean[maze.getHeight()][maze.getWidth()];
+        for (MazeNode node = current; node != null; node = node.getPrevious()) {
+            followed[node.getRow()][node.getCol()] = true;
+        }
+        return MazeStrings.solverState(maze, followed);
+    }
+
+    @Override
+    public void reset() {
+        field = null;
+        current = null;
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            DistanceField prevField = field;
+            MazeNode prevCurrent = current;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            field = prevField;
+            current = prevCurrent;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** The first step looks up (or builds) the distance field and each 
+     * later step moves one square closer to the finish. */
+    public void step() {
+        if (terminated) { return; }
+        if (field == null) {
+            field = maze.getDistanceField();
+            if (field.distance(start.y, start.x) == DistanceField.UNREACHABLE) {
+                terminated = true;
+                solvedBefore = true;
+                finalNode = null;
+            } else {
+                current = new MazeNode(maze.at(start.y, start.x), new Point(start), null);
+            }
+            return;
+        }
+        if (field.distance(current.getRow(), current.getCol()) == 0) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = current;
+            return;
+        }
+        Point next = field.nextStep(current.getLocation());
+        if (next == null) {
+            // no neighbor is closer, so the field doesn't fit the maze and
+            // there is no path to follow
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+        current = new MazeNode(maze.at(next.y, next.x), next, current);
+    }
+}
@@ -0,0 +1,144 @@
+package solver;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import maze.ConnectedComponents;
+import maze.Maze;
+import maze.Square;
+
+/**
+ * Distance estimates shared by the solvers that search towards the finish.
+ */
+class Heuristics {
+    private Heuristics() {
+    }
+
+    /**
+     * Estimated movement cost to move from the passed in location to the
+     * nearest finish. This never overestimates the real cost, so a search
+     * ordered by it still finds the shortest path.
+     * @param maze The maze being solved
+     * @param row The row of the current location
+     * @param col The column of the current location
+     * @return The estimated cost.
+     */
+    static int estimate(Maze maze, int row, int col) {
+        return estimate(maze, row, col, maze.getFinishes());
+    }
+
+    /**
+     * Estimated movement cost to move from the passed in location to the
+     * nearest of the passed in goals, which is the smallest estimate to
+     * any one of them.
+     * @param maze The maze being solved
+     * @param row The row of the current location
+     * @param col The column of the current location
+     * @param goals The locations that count as reaching the end
+     * @return The estimated cost, or 0 if there are no goals.
+     */
+    static int estimate(Maze maze, int row, int col, Point[] goals) {
+        if (goals.length == 0) {
+            return 0;
+        }
+        Point curPt = new Point(col, row);
+        Point[] teles = maze.getTeleporters();
+        // the distance of the closer teleporter to our current position
+        int distToTele = teles == null ? 0 : Math.min(manhattanDist(teles[0], curPt),
+                manhattanDist(teles[1], curPt));
+        int result = Integer.MAX_VALUE;
+        for (Point goal : goals) {
+            result = Math.min(result, manhattanDist(goal, curPt));
+            if (teles != null) {
+                // estimate the distance if we used teleporters: the shortest
+                // distance from a teleporter to the goal, plus the teleport
+                int distToGoal = Math.min(manhattanDist(teles[0], goal),
+                        manhattanDist(teles[1], goal));
+                result = Math.min(result, distToTele + distToGoal + 1);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the Manhattan distance between two points (the sum of the 
+     * differences of their coordinates) */
+    static int manhattanDist(Point a, Point b) {
+        return Math.abs(a.x - b.x) + Math.abs(a.y - b.y);
+    }
+
+    /** A bound on the length of a shortest path, and what it cost to find */
+    static final class PathBound {
+        /** The most moves a shortest path from the start can take, or -1
+         * if no finish can be reached from the start */
+        final int moves;
+        /** The bytes allocated to count the squares reachable from the start */
+        final long bytes;
+
+        private PathBound(int moves, long bytes) {
+            this.moves = moves;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Bounds the moves a shortest path from the start can take by one less
+     * than the number of squares reachable from the start, since a shortest
+     * path never visits a square twice. If the maze has computed its
+     * components, that number is the size of the start's component.
+     * Otherwise the squares are flood filled with a bitset of visited
+     * squares and a stack of cells, so that solvers with little memory
+     * can afford this.
+     * @param maze The maze being solved
+     * @return The bound and the memory used to find it
+     */
+    static PathBound longestPath(Maze maze) {
+        Point start = maze.getStart();
+        ConnectedComponents components = maze.getComponents();
+        if (components != null) {
+            int moves = maze.canReachFinish(start) ? components.size(start.y, start.x) - 1 : -1;
+            return new PathBound(moves, 0);
+        }
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        BitSet reached = new BitSet((int) Math.min((long) width * height, Integer.MAX_VALUE));
+        int[] toVisit = new int[64];
+        int size = 0;
+        reached.set(start.y * width + start.x);
+        toVisit[size++] = start.y * width + start.x;
+        Point[] teles = maze.getTeleporters();
+        int count = 0;
+        boolean finishReached = false;
+        while (size > 0) {
+            int cell = toVisit[--size];
+            int row = cell / width;
+            int col = cell % width;
+            count++;
+            finishReached = finishReached || maze.at(row, col) == Square.FINISH;
+            // room for every neighbor plus the other teleporter
+            if (size + MazeSolver.ADJACENTS.length + 1 > toVisit.length) {
+                toVisit = Arrays.copyOf(toVisit, toVisit.length * 2);
+            }
+            for (int[] move : MazeSolver.ADJACENTS) {
+                int newCol = col + move[0];
+                int newRow = row + move[1];
+                int next = newRow * width + newCol;
+                if (newCol >= 0 && newCol < width && newRow >= 0 && newRow < height
+                        && maze.at(newRow, newCol) != Square.WALL && !reached.get(next)) {
+                    reached.set(next);
+                    toVisit[size++] = next;
+                }
+            }
+            if (maze.isTeleporter(row, col)) {
+                Point other = teles[0].x == col && teles[0].y == row ? teles[1] : teles[0];
+                int next = other.y * width + other.x;
+                if (!reached.get(next)) {
+                    reached.set(next);
+                    toVisit[size++] = next;
+                }
+            }
+        }
+        long bytes = reached.size() / 8 + (long) toVisit.length * Integer.BYTES;
+        return new PathBound(finishReached ? count - 1 : -1, bytes);
+    }
+}
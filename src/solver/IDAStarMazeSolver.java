@@ -0,0 +1,320 @@
+package solver;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * An iterative deepening A* solver. Each iteration is a depth first search
+ * that gives up on paths whose estimated total cost is above a threshold,
+ * and the threshold is raised to the smallest cost that was cut off until
+ * the finish is found. Only the current path and a fixed size transposition
+ * table are kept in memory, so the solver works with a small heap while
+ * still finding the shortest path.
+ */
+public class IDAStarMazeSolver implements MazeSolver {
+    /** The number of entries in the transposition table if none is given */
+    public static final int DEFAULT_TABLE_SIZE = 1 << 16;
+    /** Estimated bytes used by each square of the current path */
+    private static final int BYTES_PER_PATH_ENTRY = 2 * 4;
+    /** Estimated bytes used by each entry of the transposition table */
+    private static final int BYTES_PER_TABLE_ENTRY = 2 * 4;
+    /** Threshold used when nothing was cut off during an iteration */
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    /** The maze to solve */
+    private Maze maze;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The largest estimated cost explored in this iteration */
+    private int threshold;
+    /** The smallest estimated cost cut off in this iteration */
+    private int nextThreshold;
+    /** The most moves a path can have without visiting a square twice,
+     * or -1 if the finish can't be reached. A threshold above this can't
+     * find anything new. */
+    private int longestPath;
+    /** The most bytes spent finding longestPath */
+    private long peakBoundBytes;
+    /** The cells (row * width + col) of the current path, from the start */
+    private int[] pathCells;
+    /** pathNext[i] is the index of the next successor of pathCells[i] to
+     * try, where 0-3 are the adjacent squares and 4 is the teleporter */
+    private int[] pathNext;
+    /** The number of squares on the current path */
+    private int pathLength;
+    /** Transposition table of cells (stored as cell + 1, with 0 for an empty
+     * slot) reached this iteration, and the cost they were reached with */
+    private int[] tableCells;
+    private int[] tableCosts;
+
+    /** The longest the current path has been */
+    private int peakPathLength;
+
+    /** Initializes an iterative deepening A* solver with the default
+     * transposition table size
+     * @param maze The maze to solve.
+     */
+    public IDAStarMazeSolver(Maze maze) {
+        this(maze, DEFAULT_TABLE_SIZE);
+    }
+
+    /** Initializes an iterative deepening A* solver
+     * @param maze The maze to solve.
+     * @param tableSize The number of entries in the transposition table,
+     *        rounded up to a power of two. 0 disables the table.
+     */
+    public IDAStarMazeSolver(Maze maze, int tableSize) {
+        if (tableSize < 0) {
+            throw new IllegalArgumentException("Table size must not be negative");
+        }
+        this.maze = maze;
+        int size = tableSize <= 1 ? tableSize : Integer.highestOneBit(tableSize - 1) << 1;
+        tableCells = new int[size];
+        tableCosts = new int[size];
+        pathCells = new int[16];
+        pathNext = new int[16];
+        reset();
+    }
+
+    /** Starts a new iteration of the depth first search with the passed in
+     * threshold */
+    private void startIteration(int newThreshold) {
+        threshold = newThreshold;
+        nextThreshold = INFINITY;
+        Arrays.fill(tableCells, 0);
+        pathLength = 0;
+        push(maze.getStart().y * maze.getWidth() + maze.getStart().x);
+    }
+
+    /** Adds the cell to the end of the current path */
+    private void push(int cell) {
+        if (pathLength == pathCells.length) {
+            pathCells = Arrays.copyOf(pathCells, pathLength * 2);
+            pathNext = Arrays.copyOf(pathNext, pathLength * 2);
+        }
+        pathCells[pathLength] = cell;
+        pathNext[pathLength] = 0;
+        pathLength++;
+        peakPathLength = Math.max(peakPathLength, pathLength);
+    }
+
+    /**
+     * Records that cell was reached with the passed in cost.
+     * @return false if the cell was already reached at most as cheaply this
+     *         iteration, in which case everything below it has been searched
+     */
+    private boolean record(int cell, int cost) {
+        if (tableCells.length == 0) {
+            return true;
+        }
+        int slot = (cell * 0x9E3779B1) >>> 1 & (tableCells.length - 1);
+        if (tableCells[slot] == cell + 1 && tableCosts[slot] <= cost) {
+            return false;
+        }
+        // newer entries replace older ones that hash to the same slot
+        tableCells[slot] = cell + 1;
+        tableCosts[slot] = cost;
+        return true;
+    }
+
+    /**
+     * Returns the cell reached by taking successor number next from the
+     * passed in cell, or -1 if that successor is a wall, outside the maze,
+     * or isn't a teleporter.
+     */
+    private int successor(int cell, int next) {
+        int row = cell / maze.getWidth();
+        int col = cell % maze.getWidth();
+        if (next < ADJACENTS.length) {
+            int newCol = col + ADJACENTS[next][0];
+            int newRow = row + ADJACENTS[next][1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    maze.at(newRow, newCol) != Square.WALL) {
+                return newRow * maze.getWidth() + newCol;
+            }
+            return -1;
+        }
+        if (maze.isTeleporter(row, col)) {
+            Point[] teleporters = maze.getTeleporters();
+            Point newLoc = teleporters[0].equals(new Point(col, row)) ? teleporters[1] : teleporters[0];
+            return newLoc.y * maze.getWidth() + newLoc.x;
+        }
+        return -1;
+    }
+
+    /** Converts the current path into a linked list of nodes */
+    private MazeNode pathToNodes() {
+        MazeNode result = null;
+        for (int i = 0; i < pathLength; i++) {
+            Point loc = new Point(pathCells[i] % maze.getWidth(), pathCells[i] / maze.getWidth());
+            result = new MazeNode(maze.at(loc.y, loc.x), loc, result);
+        }
+        return result;
+    }
+
+    /** Returns the longest the search path has been */
+    public int getPeakPathLength() {
+        return peakPathLength;
+    }
+
+    /** Returns an estimate of the most memory in bytes the search state has
+     * used, made up of the longest search path, the transposition table and
+     * the flood fill that bounds the path length */
+    public long getPeakMemoryBytes() {
+        return (long) peakPathLength * BYTES_PER_PATH_ENTRY
+                + (long) tableCells.length * BYTES_PER_TABLE_ENTRY + peakBoundBytes;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "IDA* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Returns a string representation of the state of the maze solver, with
+     * "v" representing the squares on the current search path. */
+    public String getSolverState() {
+        boolean[][] onPath = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int i = 0; i < pathLength; i++) {
+            onPath[pathCells[i] / maze.getWidth()][pathCells[i] % maze.getWidth()] = true;
+        }
+        return MazeStrings.solverState(maze, onPath);
+    }
+
+    @Override
+    public void reset() {
+        terminated = false;
+        pathLength = 0;
+        Heuristics.PathBound bound = Heuristics.longestPath(maze);
+        longestPath = bound.moves;
+        peakBoundBytes = Math.max(peakBoundBytes, bound.bytes);
+        // only start searching if the finish might be reachable
+        if (longestPath >= 0 && maze.canReachFinish(maze.getStart())) {
+            startIteration(Heuristics.estimate(maze, maze.getStart().y, maze.getStart().x));
+        } else {
+            nextThreshold = INFINITY;
+        }
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            int prevThreshold = threshold;
+            int prevNextThreshold = nextThreshold;
+            int[] prevPathCells = pathCells.clone();
+            int[] prevPathNext = pathNext.clone();
+            int prevPathLength = pathLength;
+            int[] prevTableCells = tableCells.clone();
+            int[] prevTableCosts = tableCosts.clone();
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            threshold = prevThreshold;
+            nextThreshold = prevNextThreshold;
+            pathCells = prevPathCells;
+            pathNext = prevPathNext;
+            pathLength = prevPathLength;
+            tableCells = prevTableCells;
+            tableCosts = prevTableCosts;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Visits the next square of the depth first search, or starts the
+     * next iteration if the current one is over. */
+    public void step() {
+        if (terminated) { return; }
+        if (pathLength == 0) {
+            // the iteration is over. If nothing was cut off, or only paths
+            // longer than any path without repeated squares, raising the
+            // threshold won't find anything new
+            if (nextThreshold == INFINITY || nextThreshold > longestPath) {
+                terminated = true;
+                solvedBefore = true;
+                finalNode = null;
+            } else {
+                startIteration(nextThreshold);
+            }
+            return;
+        }
+
+        int top = pathLength - 1;
+        int cell = pathCells[top];
+        if (pathNext[top] == 0) {
+            // first time at this square
+            int row = cell / maze.getWidth();
+            int col = cell % maze.getWidth();
+            int cost = top + Heuristics.estimate(maze, row, col);
+            if (cost > threshold) {
+                nextThreshold = Math.min(nextThreshold, cost);
+                pathLength--;
+                return;
+            }
+            if (maze.at(row, col) == Square.FINISH) {
+                terminated = true;
+                solvedBefore = true;
+                finalNode = pathToNodes();
+                return;
+            }
+            if (!record(cell, top)) {
+                pathLength--;
+                return;
+            }
+        }
+        // try the successors in order, backtracking once they are all tried
+        while (pathNext[top] <= ADJACENTS.length) {
+            int next = successor(cell, pathNext[top]++);
+            if (next != -1 && (top == 0 || next != pathCells[top - 1])) {
+                push(next);
+                return;
+            }
+        }
+        pathLength--;
+    }
+}
@@ -1,5 +1,6 @@
 package solver;
 
+import maze.Maze;
 import maze.MazeNode;
 
 public interface MazeSolver {
@@ -23,6 +24,6 @@ public interface MazeSolver {
 	/** Returns a textual representation of the solution to the maze */
 	public String getSolutionString();
 	
-	/** Hard coded possible adjacent locations */
-    public static final int[][] ADJACENTS = { {0, 1}, {1, 0}, {0, -1}, {-1, 0} };
+	/** Hard coded possible adjacent locations, the same as Maze.ADJACENTS */
+    public static final int[][] ADJACENTS = Maze.ADJACENTS;
 }
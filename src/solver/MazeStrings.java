@@ -0,0 +1,61 @@
+package solver;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * Builds the textual representations of mazes that the solvers return.
+ */
+class MazeStrings {
+    private MazeStrings() {
+    }
+
+    /** Returns a string representation of the maze with the solution path 
+     * marked by 's'. Teleportations are marked by the 't' instead. If 
+     * solution is null, just return a string representation of the maze 
+     * with no solution path. */
+    static String solutionString(Maze maze, MazeNode solution) {
+        // get the initial string representation of the maze, without the path
+        StringBuilder result = new StringBuilder();
+        for (int row = 0; row < maze.getHeight(); row++) {
+            for (int col = 0; col < maze.getWidth(); col++) {
+                result.append(maze.at(row, col).toString());
+            }
+            result.append("\n");
+        }
+        
+        // ignore the first and last nodes of the solution, because those should 
+        // have finish and start symbols in the maze
+        MazeNode node = solution;
+        if (node != null) {
+            node = node.getPrevious();
+            while (node != null && node.getPrevious() != null) {
+                // replace the character at this node with an "s", accounting for newline chars
+                int charLoc = node.getRow() * (maze.getWidth()+1) + node.getCol();
+                result.setCharAt(charLoc, maze.isTeleporter(node.getRow(), node.getCol()) ? 't' : 's');
+                node = node.getPrevious();
+            }
+        }
+        return result.toString();
+    }
+
+    /** Returns a string representation of the maze with "v" marking the 
+     * squares for which visited[row][col] is true. */
+    static String solverState(Maze maze, boolean[][] visited) {
+        StringBuilder result = new StringBuilder();
+        for (int row = 0; row < maze.getHeight(); row++) {
+            for (int col = 0; col < maze.getWidth(); col++) {
+                Square square = maze.at(row, col);
+                if (square == Square.START || square == Square.FINISH
+                        || !visited[row][col]) {
+                    result.append(square.toString());
+                } else {
+                    result.append("v");
+                }
+            }
+            result.append("\n");
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package solver;
+
+import java.awt.Point;
+import java.util.PriorityQueue;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+import maze.WeightedMazeNode;
+
+/**
+ * An A* solver that searches from several starts at once towards several
+ * goals at once, and stops at whichever goal is nearest to any start. The
+ * heuristic is the smallest estimate to any of the goals, so the path found
+ * is still the shortest. This replaces running one search per goal.
+ */
+public class MultiGoalMazeSolver implements MazeSolver {
+    /** The maze to solve */
+    private Maze maze;
+    /** The locations the search starts from */
+    private Point[] starts;
+    /** The locations the search is looking for */
+    private Point[] goals;
+    /** isGoal[i][j] is whether row i, column j is one of the goals */
+    private boolean[][] isGoal;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then none of
+     * the goals can be reached */
+    private WeightedMazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** Priority queue of locations to explore */
+    private PriorityQueue<WeightedMazeNode> queue;
+    /** visited[i][j] is whether row i, column j has been explored */
+    private boolean[][] visited;
+
+    /** Initializes a solver that searches from every start of the maze
+     * to the nearest of its finishes
+     * @param maze The maze to solve.
+     */
+    public MultiGoalMazeSolver(Maze maze) {
+        this(maze, maze.getStarts(), maze.getFinishes());
+    }
+
+    /** Initializes a solver that searches from the passed in starts to the
+     * nearest of the passed in goals. Locations are in the format x = col, y = row.
+     * @param maze The maze to solve.
+     * @param starts The locations to search from
+     * @param goals The locations to search for
+     */
+    public MultiGoalMazeSolver(Maze maze, Point[] starts, Point[] goals) {
+        this.maze = maze;
+        this.starts = starts.clone();
+        this.goals = goals.clone();
+        isGoal = new boolean[maze.getHeight()][maze.getWidth()];
+        for (Point goal : goals) {
+            isGoal[goal.y][goal.x] = true;
+        }
+        reset();
+    }
+
+    /**
+     * Adds each of the neighboring nodes to the queue of locations. 
+     * @param node the node to find neighbors of
+     */
+    private void addNeighbors(WeightedMazeNode node) {
+        for (int[] offset : ADJACENTS) {
+            int newCol = node.getCol() + offset[0];
+            int newRow = node.getRow() + offset[1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    !visited[newRow][newCol] && maze.at(newRow, newCol) != Square.WALL) {
+                queue.add(new WeightedMazeNode(maze.at(newRow, newCol),
+                        new Point(newCol, newRow), node,
+                        node.getMovementCost()+1, heuristic(newRow, newCol)));
+            }
+        }
+        // if node is a teleporter, add the other teleporter to the queue
+        if (maze.isTeleporter(node.getRow(), node.getCol())) {
+            Point[] teleporters = maze.getTeleporters();
+            Point newLoc = teleporters[0].equals(node.getLocation()) ? teleporters[1] : teleporters[0];
+            queue.add(new WeightedMazeNode(maze.at(newLoc.y, newLoc.x),
+                    new Point(newLoc.x, newLoc.y), node,
+                    node.getMovementCost()+1, heuristic(newLoc.y, newLoc.x)));
+        }
+    }
+
+    /** Estimated movement cost from row, col to the nearest goal */
+    private int heuristic(int row, int col) {
+        return Heuristics.estimate(maze, row, col, goals);
+    }
+
+    /** Returns the goal that was reached, which is the one nearest to any
+     * start, or null if none can be reached */
+    public Point getNearestTarget() {
+        MazeNode solution = getSolution();
+        return solution == null ? null : solution.getLocation();
+    }
+
+    /** Returns the start that the path to the nearest goal begins at, or
+     * null if no goal can be reached */
+    public Point getNearestSource() {
+        MazeNode node = getSolution();
+        while (node != null && node.getPrevious() != null) {
+            node = node.getPrevious();
+        }
+        return node == null ? null : node.getLocation();
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Multi-Goal A* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    public String getSolverState() {
+        return MazeStrings.solverState(maze, visited);
+    }
+
+    @Override
+    public void reset() {
+        queue = new PriorityQueue<WeightedMazeNode>();
+        visited = new boolean[maze.getHeight()][maze.getWidth()];
+        // add every start to the queue with no movement cost, so the search 
+        // grows outward from all of them at once
+        for (Point start : starts) {
+            queue.add(new WeightedMazeNode(maze.at(start.y, start.x), new Point(start),
+                    null, 0, heuristic(start.y, start.x)));
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether any goal could be reached
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            PriorityQueue<WeightedMazeNode> prevQueue = queue;
+            boolean[][] prevVisited = visited;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            queue = prevQueue;
+            visited = prevVisited;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    public void step() {
+        if (terminated) { return; }
+        // remove elements until we find one that is unvisited
+        while (!queue.isEmpty() && visited[queue.peek().getRow()][queue.peek().getCol()]) {
+            queue.remove();
+        }
+
+        // if queue is empty, then all reachable locations have been visited, 
+        // so none of the goals can be reached
+        if (queue.isEmpty()) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+
+        WeightedMazeNode location = queue.remove();
+        visited[location.getRow()][location.getCol()] = true;
+        if (isGoal[location.getRow()][location.getCol()]) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = location;
+        } else {
+            addNeighbors(location);
+        }
+    }
+}
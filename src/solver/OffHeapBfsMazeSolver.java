@@ -0,0 +1,218 @@
+package solver;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import adt.OffHeapArray;
+import adt.OffHeapLongQueue;
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * A breadth first solver that keeps all of its per-square state outside
+ * the Java heap, with squares numbered row * width + col as longs. For each
+ * square it stores one byte saying how the square was first reached, which
+ * is enough to trace the path back, and the queue of squares to explore is
+ * off heap too. Together with a maze stored off heap, this solves mazes
+ * with more than 2^31 squares, and the heap only holds the solution.
+ */
+public class OffHeapBfsMazeSolver implements MazeSolver {
+    /** State of a square that hasn't been reached */
+    private static final byte UNREACHED = 0;
+    /** State of a start square. A square reached by moving by ADJACENTS[i]
+     * has state i + 1 */
+    private static final byte STARTED = (byte) (ADJACENTS.length + 1);
+    /** State of a square reached through the other teleporter */
+    private static final byte TELEPORTED = (byte) (ADJACENTS.length + 2);
+
+    /** The maze to solve */
+    private Maze maze;
+    /** The cells of the two teleporters, or -1 if there are none */
+    private long teleporterA;
+    private long teleporterB;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** How each square was first reached, one byte per cell */
+    private OffHeapArray reached;
+    /** Cells to explore */
+    private OffHeapLongQueue queue;
+
+    /** Initializes an off heap breadth first solver
+     * @param maze The maze to solve.
+     */
+    public OffHeapBfsMazeSolver(Maze maze) {
+        this.maze = maze;
+        Point[] teleporters = maze.getTeleporters();
+        teleporterA = teleporters == null ? -1 : cell(teleporters[0].y, teleporters[0].x);
+        teleporterB = teleporters == null ? -1 : cell(teleporters[1].y, teleporters[1].x);
+        reset();
+    }
+
+    /** Returns the number of the square at row, col */
+    private long cell(int row, int col) {
+        return (long) row * maze.getWidth() + col;
+    }
+
+    /** Marks a square as reached in the passed in way and adds it to the
+     * queue, if it hasn't been reached before */
+    private void reach(long cell, byte how) {
+        if (reached.getByte(cell) == UNREACHED) {
+            reached.setByte(cell, how);
+            queue.add(cell);
+        }
+    }
+
+    /**
+     * Traces the path back from a square using the way each square was reached.
+     * @param end The cell the path ends at
+     * @return The last node of the path
+     */
+    private MazeNode tracePath(long end) {
+        List<Point> points = new ArrayList<Point>();
+        long cell = end;
+        while (true) {
+            int row = (int) (cell / maze.getWidth());
+            int col = (int) (cell % maze.getWidth());
+            points.add(new Point(col, row));
+            byte how = reached.getByte(cell);
+            if (how == STARTED) {
+                break;
+            } else if (how == TELEPORTED) {
+                cell = cell == teleporterA ? teleporterB : teleporterA;
+            } else {
+                int[] offset = ADJACENTS[how - 1];
+                cell = cell(row - offset[1], col - offset[0]);
+            }
+        }
+        MazeNode result = null;
+        for (int i = points.size() - 1; i >= 0; i--) {
+            Point loc = points.get(i);
+            result = new MazeNode(maze.at(loc.y, loc.x), loc, result);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Off Heap BFS Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    public String getSolverState() {
+        boolean[][] visited = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                visited[r][c] = reached.getByte(cell(r, c)) != UNREACHED;
+            }
+        }
+        return MazeStrings.solverState(maze, visited);
+    }
+
+    @Override
+    public void reset() {
+        reached = new OffHeapArray((long) maze.getWidth() * maze.getHeight());
+        queue = new OffHeapLongQueue();
+        // add the starts to the queue, unless we already know the finish
+        // can't be reached from them
+        for (Point start : maze.getStarts()) {
+            if (maze.canReachFinish(start)) {
+                reach(cell(start.y, start.x), STARTED);
+            }
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            OffHeapArray prevReached = reached;
+            OffHeapLongQueue prevQueue = queue;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            reached = prevReached;
+            queue = prevQueue;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    public void step() {
+        if (terminated) { return; }
+        // if queue is empty, then all reachable locations have been visited,
+        // so the maze is unsolvable
+        if (queue.isEmpty()) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+
+        long cell = queue.remove();
+        int row = (int) (cell / maze.getWidth());
+        int col = (int) (cell % maze.getWidth());
+        if (maze.at(row, col) == Square.FINISH) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = tracePath(cell);
+            return;
+        }
+        for (int i = 0; i < ADJACENTS.length; i++) {
+            int newCol = col + ADJACENTS[i][0];
+            int newRow = row + ADJACENTS[i][1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    maze.at(newRow, newCol) != Square.WALL) {
+                reach(cell(newRow, newCol), (byte) (i + 1));
+            }
+        }
+        // a teleporter also reaches the other teleporter
+        if (cell == teleporterA) {
+            reach(teleporterB, TELEPORTED);
+        } else if (cell == teleporterB) {
+            reach(teleporterA, TELEPORTED);
+        }
+    }
+}
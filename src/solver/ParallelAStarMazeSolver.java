@@ -0,0 +1,458 @@
+package solver;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * A hash distributed A* (HDA*) solver, which searches one maze with several
+ * threads. Every square belongs to one worker, chosen by hashing the 8 by 8
+ * block the square is in. Each worker keeps its own open list and is the
+ * only one that reads or writes the costs of its squares, so the workers
+ * share no locks. When a worker finds a new path to another worker's square
+ * it sends it to that worker's inbox, a lock-free queue.
+ *
+ * The workers don't stop at the first finish they reach. They keep the
+ * shortest path found so far and drop anything whose estimated total cost
+ * isn't below it, and the search ends once no worker has anything left to
+ * explore and no messages are on their way. Squares can be explored again if
+ * a cheaper path to them arrives later, so the path found is the shortest,
+ * including paths through the teleporters.
+ */
+public class ParallelAStarMazeSolver implements MazeSolver {
+    /** Cost of a square that hasn't been reached */
+    private static final int INFINITY = Integer.MAX_VALUE;
+    /** log2 of the width and height of the blocks of squares given to each worker */
+    private static final int BLOCK_SHIFT = 3;
+    /** Value of the best path when none has been found */
+    private static final long NO_PATH = Long.MAX_VALUE;
+
+    /** The maze to solve */
+    private Maze maze;
+    /** The number of workers */
+    private int threads;
+    /** The cells of the two teleporters, or -1 if there are none */
+    private int teleporterA;
+    private int teleporterB;
+    /** estimates[cell] is the estimated cost to the nearest finish, or -1 if
+     * it hasn't been needed yet. Only the owner of a cell uses its entry. */
+    private int[] estimates;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The state of the search */
+    private Search search;
+    /** The worker that takes the next step */
+    private int nextWorker;
+
+    /** The state of a search shared by all the workers. Cells are numbered
+     * row * width + col. */
+    private static class Search {
+        private Worker[] workers;
+        /** cost[cell] is the cost of the cheapest path to cell found so far,
+         * written only by the owner of the cell */
+        private int[] cost;
+        /** parent[cell] is the cell before cell on that path, or -1 */
+        private int[] parent;
+        /** explored[cell] is whether cell has been explored */
+        private boolean[] explored;
+        /** The number of busy workers plus the number of messages sent but
+         * not yet received. The search is over when this reaches 0. */
+        private AtomicInteger active;
+        /** The shortest path found so far, as cost << 32 | finish cell */
+        private AtomicLong best;
+        /** Set once active reaches 0 */
+        private volatile boolean done;
+    }
+
+    /** The state of one worker */
+    private static class Worker {
+        /** Paths to this worker's squares found by other workers */
+        private ConcurrentLinkedQueue<Message> inbox = new ConcurrentLinkedQueue<Message>();
+        /** This worker's open list */
+        private LongHeap open = new LongHeap();
+        /** Whether this worker has nothing to do. An idle worker isn't
+         * counted in Search.active. */
+        private boolean idle = true;
+    }
+
+    /** A path to a square, sent to the owner of the square */
+    private static class Message {
+        private int cell;
+        private int cost;
+        private int parent;
+
+        private Message(int cell, int cost, int parent) {
+            this.cell = cell;
+            this.cost = cost;
+            this.parent = parent;
+        }
+    }
+
+    /** A binary min heap of longs. Open list entries are stored as
+     * (cost + estimate) << 32 | cell, so they sort by estimated total cost. */
+    private static class LongHeap {
+        private long[] items = new long[64];
+        private int size;
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private long peek() {
+            return items[0];
+        }
+
+        private void add(long item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && items[(i - 1) / 2] > item) {
+                items[i] = items[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            items[i] = item;
+        }
+
+        private long remove() {
+            long result = items[0];
+            long last = items[--size];
+            int i = 0;
+            while (2 * i + 1 < size) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && items[child + 1] < items[child]) {
+                    child++;
+                }
+                if (items[child] >= last) {
+                    break;
+                }
+                items[i] = items[child];
+                i = child;
+            }
+            items[i] = last;
+            return result;
+        }
+    }
+
+    /** Initializes a parallel A* solver with one worker per processor
+     * @param maze The maze to solve.
+     */
+    public ParallelAStarMazeSolver(Maze maze) {
+        this(maze, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Initializes a parallel A* solver
+     * @param maze The maze to solve.
+     * @param threads The number of workers
+     */
+    public ParallelAStarMazeSolver(Maze maze, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("There must be at least one thread");
+        }
+        this.maze = maze;
+        this.threads = threads;
+        int width = maze.getWidth();
+        Point[] teleporters = maze.getTeleporters();
+        teleporterA = teleporters == null ? -1 : teleporters[0].y * width + teleporters[0].x;
+        teleporterB = teleporters == null ? -1 : teleporters[1].y * width + teleporters[1].x;
+        estimates = new int[width * maze.getHeight()];
+        Arrays.fill(estimates, -1);
+        reset();
+    }
+
+    /** Returns the index of the worker that owns cell */
+    private int owner(int cell) {
+        int row = cell / maze.getWidth() >> BLOCK_SHIFT;
+        int col = cell % maze.getWidth() >> BLOCK_SHIFT;
+        int hash = (row * 0x9E3779B1) ^ (col * 0x85EBCA6B);
+        return ((hash ^ hash >>> 15) & Integer.MAX_VALUE) % threads;
+    }
+
+    /** Returns the estimated cost from cell to the nearest finish */
+    private int estimate(int cell) {
+        if (estimates[cell] < 0) {
+            estimates[cell] = Heuristics.estimate(maze, cell / maze.getWidth(), cell % maze.getWidth());
+        }
+        return estimates[cell];
+    }
+
+    /** Returns the cost of the shortest path found so far */
+    private int bestCost() {
+        long best = search.best.get();
+        return best == NO_PATH ? INFINITY : (int) (best >>> 32);
+    }
+
+    /** Records a path to a finish if it is shorter than the best one so far */
+    private void offerPath(int cell, int cost) {
+        long path = (long) cost << 32 | cell;
+        long best = search.best.get();
+        while (path < best && !search.best.compareAndSet(best, path)) {
+            best = search.best.get();
+        }
+    }
+
+    /**
+     * Handles a path to one of the worker's own cells. If it is cheaper
+     * than the path known so far, it is kept and the cell is added to the
+     * worker's open list, unless it can't lead to a shorter path than the
+     * best one found.
+     */
+    private void receive(Worker worker, int cell, int cost, int parent) {
+        if (cost >= search.cost[cell]) {
+            return;
+        }
+        search.cost[cell] = cost;
+        search.parent[cell] = parent;
+        if (maze.at(cell / maze.getWidth(), cell % maze.getWidth()) == Square.FINISH) {
+            offerPath(cell, cost);
+        } else if ((long) cost + estimate(cell) < bestCost()) {
+            worker.open.add((long) (cost + estimate(cell)) << 32 | cell);
+        }
+    }
+
+    /** Passes a path to cell on to the cell's owner */
+    private void send(Worker from, int cell, int cost, int parent) {
+        Worker to = search.workers[owner(cell)];
+        if (to == from) {
+            receive(from, cell, cost, parent);
+        } else {
+            // count the message before it can be received
+            search.active.incrementAndGet();
+            to.inbox.add(new Message(cell, cost, parent));
+        }
+    }
+
+    /**
+     * Does one unit of work for a worker: receives every message in its
+     * inbox, then explores the best square of its open list. A worker with
+     * nothing left to do becomes idle, and the last one to do so ends the
+     * search. Both the threads of solve() and step() work through this.
+     */
+    private void runOnce(Worker worker) {
+        Message message;
+        while ((message = worker.inbox.poll()) != null) {
+            if (worker.idle) {
+                // the message's count becomes the worker's count
+                worker.idle = false;
+            } else {
+                search.active.decrementAndGet();
+            }
+            receive(worker, message.cell, message.cost, message.parent);
+        }
+        if (worker.idle) {
+            return;
+        }
+
+        // skip entries that are out of date or can't beat the best path
+        int limit = bestCost();
+        while (!worker.open.isEmpty()) {
+            long top = worker.open.peek();
+            int cell = (int) top;
+            int total = (int) (top >>> 32);
+            if (total >= limit || total != search.cost[cell] + estimate(cell)) {
+                worker.open.remove();
+            } else {
+                break;
+            }
+        }
+        if (worker.open.isEmpty()) {
+            worker.idle = true;
+            if (search.active.decrementAndGet() == 0) {
+                search.done = true;
+            }
+            return;
+        }
+
+        int cell = (int) worker.open.remove();
+        search.explored[cell] = true;
+        int cost = search.cost[cell] + 1;
+        int row = cell / maze.getWidth();
+        int col = cell % maze.getWidth();
+        for (int[] offset : ADJACENTS) {
+            int newCol = col + offset[0];
+            int newRow = row + offset[1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    maze.at(newRow, newCol) != Square.WALL) {
+                send(worker, newRow * maze.getWidth() + newCol, cost, cell);
+            }
+        }
+        // a teleporter also reaches the other teleporter
+        if (cell == teleporterA) {
+            send(worker, teleporterB, cost, cell);
+        } else if (cell == teleporterB) {
+            send(worker, teleporterA, cost, cell);
+        }
+    }
+
+    /** Stores the best path once the search is over */
+    private void finish() {
+        terminated = true;
+        solvedBefore = true;
+        long best = search.best.get();
+        if (best == NO_PATH) {
+            finalNode = null;
+            return;
+        }
+        int[] path = new int[(int) (best >>> 32) + 1];
+        int count = 0;
+        for (int cell = (int) best; cell != -1; cell = search.parent[cell]) {
+            path[count++] = cell;
+        }
+        MazeNode result = null;
+        for (int i = count - 1; i >= 0; i--) {
+            int row = path[i] / maze.getWidth();
+            int col = path[i] % maze.getWidth();
+            result = new MazeNode(maze.at(row, col), new Point(col, row), result);
+        }
+        finalNode = result;
+    }
+
+    /** Returns the number of workers */
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Parallel A* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Shows the squares explored so far by any worker */
+    public String getSolverState() {
+        boolean[][] explored = new boolean[maze.getHeight()][maze.getWidth()];
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                explored[r][c] = search.explored[r * maze.getWidth() + c];
+            }
+        }
+        return MazeStrings.solverState(maze, explored);
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    public void reset() {
+        int cells = maze.getWidth() * maze.getHeight();
+        search = new Search();
+        search.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            search.workers[i] = new Worker();
+        }
+        search.cost = new int[cells];
+        Arrays.fill(search.cost, INFINITY);
+        search.parent = new int[cells];
+        Arrays.fill(search.parent, -1);
+        search.explored = new boolean[cells];
+        search.active = new AtomicInteger();
+        search.best = new AtomicLong(NO_PATH);
+        // send the start to its owner, unless we already know the finish
+        // can't be reached from it
+        if (maze.canReachFinish(maze.getStart())) {
+            int start = maze.getStart().y * maze.getWidth() + maze.getStart().x;
+            search.active.incrementAndGet();
+            search.workers[owner(start)].inbox.add(new Message(start, 0, -1));
+        } else {
+            search.done = true;
+        }
+        nextWorker = 0;
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze with one thread per worker if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            Search prevSearch = search;
+            int prevNextWorker = nextWorker;
+            reset();
+            Thread[] running = new Thread[threads];
+            for (int i = 0; i < threads; i++) {
+                Worker worker = search.workers[i];
+                running[i] = new Thread(() -> {
+                    while (!search.done) {
+                        runOnce(worker);
+                        if (worker.idle) {
+                            Thread.yield();
+                        }
+                    }
+                }, "parallel-astar-" + i);
+                running[i].start();
+            }
+            // joining also makes every worker's writes visible here
+            boolean interrupted = false;
+            for (Thread thread : running) {
+                while (thread.isAlive()) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            finish();
+            terminated = prevTerminated;
+            search = prevSearch;
+            nextWorker = prevNextWorker;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Does one unit of work for the next worker in turn, on this thread. */
+    public void step() {
+        if (terminated) { return; }
+        if (!search.done) {
+            runOnce(search.workers[nextWorker]);
+            nextWorker = (nextWorker + 1) % threads;
+        }
+        if (search.done) {
+            finish();
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import maze.Maze;
+import maze.MazeNode;
+
+/**
+ * Races several solvers on the same maze and keeps the first acceptable
+ * answer. If only optimal answers are wanted, a path is only accepted from
+ * a solver that always finds the shortest path, but any solver can report
+ * that there is no path. The losers are asked to stop once there is an
+ * answer. The winner for each class of maze is recorded so that later races
+ * on similar mazes start with the usual winner.
+ */
+public class PortfolioMazeSolver implements MazeSolver {
+    /** How long solve() waits for the losers to stop, in milliseconds. A
+     * loser still in the middle of a slow step after that is left to finish
+     * it on its own thread, which won't keep the program from exiting. */
+    private static final long STOP_TIMEOUT = 1000;
+
+    /** The maze to solve */
+    private Maze maze;
+    /** Whether only shortest paths are accepted */
+    private boolean optimalOnly;
+    /** Statistics of which solver wins on each class of maze */
+    private PortfolioStats stats;
+    /** The class of the maze, found the first time it is needed */
+    private String mazeClass;
+
+    /** The solvers in the race */
+    private List<MazeSolver> solvers;
+    /** optimal.get(i) is whether solvers.get(i) always finds the shortest path */
+    private List<Boolean> optimal;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+    /** The accepted solution. If finalNode is null and solvedBefore is true,
+     * then there was no solution to the maze */
+    private MazeNode finalNode;
+    /** The solver that gave the accepted answer, or null */
+    private MazeSolver winner;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** The solvers in the order they take steps, usual winner first */
+    private List<MazeSolver> order;
+    /** Solvers whose race thread is still running them. They are left alone
+     * until it lets go of them. */
+    private Set<MazeSolver> racing;
+
+    /**
+     * Initializes a portfolio with no solvers that keeps its statistics to itself.
+     * @param maze The maze to solve
+     * @param optimalOnly Whether only shortest paths are accepted
+     */
+    public PortfolioMazeSolver(Maze maze, boolean optimalOnly) {
+        this(maze, optimalOnly, new PortfolioStats());
+    }
+
+    /**
+     * Initializes a portfolio with no solvers.
+     * @param maze The maze to solve
+     * @param optimalOnly Whether only shortest paths are accepted
+     * @param stats Statistics of earlier races, which may be shared with
+     *        other portfolios
+     */
+    public PortfolioMazeSolver(Maze maze, boolean optimalOnly, PortfolioStats stats) {
+        this.maze = maze;
+        this.optimalOnly = optimalOnly;
+        this.stats = stats;
+        solvers = new ArrayList<MazeSolver>();
+        optimal = new ArrayList<Boolean>();
+        racing = ConcurrentHashMap.newKeySet();
+        reset();
+    }
+
+    /**
+     * Returns a portfolio racing the stack, queue and A* solvers.
+     * @param maze The maze to solve
+     * @param optimalOnly Whether only shortest paths are accepted
+     * @param stats Statistics of earlier races
+     */
+    public static PortfolioMazeSolver withDefaults(Maze maze, boolean optimalOnly, PortfolioStats stats) {
+        PortfolioMazeSolver portfolio = new PortfolioMazeSolver(maze, optimalOnly, stats);
+        portfolio.add(new AgendaMazeSolver(maze, AgendaMazeSolver.STACK), false);
+        portfolio.add(new AgendaMazeSolver(maze, AgendaMazeSolver.QUEUE), true);
+        portfolio.add(new AStarMazeSolver(maze), true);
+        return portfolio;
+    }
+
+    /**
+     * Adds a solver to the race. The solver must be solving the same maze
+     * and must not be used anywhere else while the portfolio is running.
+     * @param solver The solver to add
+     * @param isOptimal Whether the solver always finds the shortest path
+     */
+    public void add(MazeSolver solver, boolean isOptimal) {
+        solvers.add(solver);
+        optimal.add(isOptimal);
+        reset();
+    }
+
+    /** Returns the class of the maze used for the statistics */
+    private String getMazeClass() {
+        if (mazeClass == null) {
+            mazeClass = PortfolioStats.classify(maze);
+        }
+        return mazeClass;
+    }
+
+    /** Returns the solvers with the usual winner for this class of maze first */
+    private List<MazeSolver> ordered() {
+        List<MazeSolver> result = new ArrayList<MazeSolver>(solvers);
+        String preferred = solvers.isEmpty() ? null : stats.getPreferred(getMazeClass());
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i).getName().equals(preferred)) {
+                result.add(0, result.remove(i));
+                break;
+            }
+        }
+        return result;
+    }
+
+    /** Returns whether a finished solver's answer can be accepted */
+    private boolean acceptable(MazeSolver solver) {
+        return !optimalOnly || solver.getSolution() == null
+                || optimal.get(solvers.indexOf(solver));
+    }
+
+    /** Stores the accepted answer and records the winner. Only the first
+     * answer is kept, so stepping after solve() can't change the solution. */
+    private void finish(MazeSolver solver) {
+        terminated = true;
+        if (solvedBefore) {
+            return;
+        }
+        solvedBefore = true;
+        winner = solver;
+        finalNode = solver == null ? null : solver.getSolution();
+        if (solver != null) {
+            stats.recordWin(getMazeClass(), solver.getName());
+        }
+    }
+
+    /** Throws an exception if the portfolio can't give an acceptable answer */
+    private void checkSolvers() {
+        if (solvers.isEmpty()) {
+            throw new IllegalStateException("The portfolio has no solvers");
+        }
+        if (optimalOnly && !optimal.contains(true)) {
+            throw new IllegalStateException("Only optimal answers are wanted, but no solver is optimal");
+        }
+    }
+
+    /** Returns the solver whose answer was accepted, or null if there is no
+     * answer yet or no solver could give an acceptable one */
+    public MazeSolver getWinner() {
+        return winner;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "Portfolio Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Returns the state of the winner if there is one, otherwise the state
+     * of the solver that steps first. */
+    public String getSolverState() {
+        if (winner != null) {
+            return winner.getSolverState();
+        }
+        if (order.isEmpty()) {
+            return MazeStrings.solverState(maze, new boolean[maze.getHeight()][maze.getWidth()]);
+        }
+        return order.get(0).getSolverState();
+    }
+
+    @Override
+    public void reset() {
+        order = ordered();
+        for (MazeSolver solver : order) {
+            if (!racing.contains(solver)) {
+                solver.reset();
+            }
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Races the solvers on separate threads if the maze hasn't been solved
+     * before. Once there is an acceptable answer, the other solvers stop at
+     * the end of their current step. A step can't be interrupted, so solve()
+     * only waits STOP_TIMEOUT for them; a solver that is still stepping after
+     * that is skipped by reset() and step() until it stops. The solvers are
+     * restarted for the race. Afterwards the losers are restarted again
+     * while the winner keeps its state, so getSolverState() shows how it won.
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (solvedBefore) {
+            return finalNode != null;
+        }
+        checkSolvers();
+        List<MazeSolver> racers = ordered();
+        // solvers still busy from an earlier race can't be raced again
+        racers.removeAll(racing);
+        if (racers.isEmpty()) {
+            throw new IllegalStateException("Every solver is still busy with an earlier race");
+        }
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+        // one thread per racer, so a solver in a slow step can't hold up
+        // the others even on a single processor
+        ExecutorService executor = Executors.newFixedThreadPool(racers.size(),
+                task -> {
+                    Thread thread = new Thread(task, "portfolio-racer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        CompletionService<MazeSolver> race = new ExecutorCompletionService<MazeSolver>(executor);
+        List<Future<MazeSolver>> futures = new ArrayList<Future<MazeSolver>>();
+        for (MazeSolver racer : racers) {
+            futures.add(race.submit(() -> {
+                racing.add(racer);
+                try {
+                    racer.reset();
+                    // check for cancellation between steps so losers stop quickly
+                    while (!racer.doneStepping()) {
+                        if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                            return null;
+                        }
+                        racer.step();
+                    }
+                    return racer;
+                } finally {
+                    racing.remove(racer);
+                }
+            }));
+        }
+        MazeSolver accepted = null;
+        boolean finished = false;
+        try {
+            for (int i = 0; i < racers.size() && accepted == null; i++) {
+                MazeSolver done = race.take().get();
+                if (done != null && acceptable(done)) {
+                    accepted = done;
+                }
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A solver in the portfolio failed", e.getCause());
+        } finally {
+            cancelled.set(true);
+            for (Future<MazeSolver> future : futures) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+            // give the losers a moment to finish their step. Any that are
+            // still racing afterwards are skipped when resetting
+            boolean interrupted = Thread.interrupted();
+            try {
+                executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (finished) {
+            finish(accepted);
+        }
+        // restart the losers so stepping through them starts over
+        order = ordered();
+        for (MazeSolver racer : racers) {
+            if (racer != winner && !racing.contains(racer)) {
+                racer.reset();
+            }
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Takes one step with each solver that isn't done, in order, and stops
+     * as soon as one of them has an acceptable answer. Solvers still running
+     * on a thread left over from solve() are skipped. */
+    public void step() {
+        if (terminated) { return; }
+        checkSolvers();
+        boolean anyRunning = false;
+        for (MazeSolver solver : order) {
+            if (racing.contains(solver)) {
+                anyRunning = true;
+                continue;
+            }
+            if (solver.doneStepping()) {
+                continue;
+            }
+            solver.step();
+            if (solver.doneStepping() && acceptable(solver)) {
+                finish(solver);
+                return;
+            }
+            anyRunning = anyRunning || !solver.doneStepping();
+        }
+        // every solver finished without an acceptable answer
+        if (!anyRunning) {
+            finish(null);
+        }
+    }
+}
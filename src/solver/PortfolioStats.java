@@ -0,0 +1,81 @@
+package solver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import maze.Maze;
+import maze.Square;
+
+/**
+ * Keeps count of which solver won the portfolio race for each class of
+ * maze, so a portfolio can try the usual winner first. Mazes are grouped
+ * by size, how much of them is wall and whether they have teleporters.
+ * One set of statistics can be shared by many portfolios.
+ */
+public class PortfolioStats {
+    /** wins.get(mazeClass).get(solverName) is how often that solver won */
+    private Map<String, Map<String, Integer>> wins;
+
+    public PortfolioStats() {
+        wins = new HashMap<String, Map<String, Integer>>();
+    }
+
+    /**
+     * Returns the class of the maze, made from the power of two nearest its
+     * number of squares, the fraction of walls to the nearest tenth, and
+     * whether it has teleporters. For example "2^14/40%/teleporters".
+     * @param maze The maze to classify
+     * @return A short description shared by similar mazes
+     */
+    public static String classify(Maze maze) {
+        long squares = (long) maze.getWidth() * maze.getHeight();
+        long walls = 0;
+        for (int r = 0; r < maze.getHeight(); r++) {
+            for (int c = 0; c < maze.getWidth(); c++) {
+                if (maze.at(r, c) == Square.WALL) {
+                    walls++;
+                }
+            }
+        }
+        int size = squares == 0 ? 0 : 63 - Long.numberOfLeadingZeros(squares);
+        long density = squares == 0 ? 0 : Math.round(10.0 * walls / squares) * 10;
+        return "2^" + size + "/" + density + "%/"
+                + (maze.getTeleporters() == null ? "no teleporters" : "teleporters");
+    }
+
+    /** Records that the named solver won a race on a maze of the passed in class */
+    public synchronized void recordWin(String mazeClass, String solverName) {
+        Map<String, Integer> counts = wins.get(mazeClass);
+        if (counts == null) {
+            counts = new HashMap<String, Integer>();
+            wins.put(mazeClass, counts);
+        }
+        Integer count = counts.get(solverName);
+        counts.put(solverName, count == null ? 1 : count + 1);
+    }
+
+    /** Returns how often the named solver has won on mazes of the passed in class */
+    public synchronized int getWins(String mazeClass, String solverName) {
+        Map<String, Integer> counts = wins.get(mazeClass);
+        if (counts == null || counts.get(solverName) == null) {
+            return 0;
+        }
+        return counts.get(solverName);
+    }
+
+    /** Returns the name of the solver that has won most often on mazes of
+     * the passed in class, or null if no race has been recorded */
+    public synchronized String getPreferred(String mazeClass) {
+        Map<String, Integer> counts = wins.get(mazeClass);
+        if (counts == null) {
+            return null;
+        }
+        String best = null;
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (best == null || entry.getValue() > counts.get(best)) {
+                best = entry.getKey();
+            }
+        }
+        return best;
+    }
+}
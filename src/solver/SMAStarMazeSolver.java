@@ -0,0 +1,442 @@
+package solver;
+
+import java.awt.Point;
+import java.util.Iterator;
+import java.util.TreeSet;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.Square;
+
+/**
+ * A simplified memory-bounded A* (SMA*) solver. It searches like A* until
+ * it holds as many nodes as its budget allows, then forgets the leaf with
+ * the worst estimated cost to make room. The parent of a forgotten leaf
+ * remembers the leaf's cost so it can be regenerated if every other option
+ * turns out to be worse. The shortest path is found as long as it is
+ * shorter than the node budget. Paths estimated to be longer than that are
+ * given up on, so if the shortest path is too long, the solver reports
+ * that there is no path.
+ */
+public class SMAStarMazeSolver implements MazeSolver {
+    /** The number of nodes that may be held at once if no budget is given */
+    public static final int DEFAULT_NODE_BUDGET = 1 << 16;
+    /** Rough number of bytes used by each node held in memory */
+    private static final int BYTES_PER_NODE = 96;
+    /** Cost of paths that are known to be useless */
+    private static final int INFINITY = Integer.MAX_VALUE;
+    /** How many squares back along the path a successor is checked against,
+     * which rules out the short loops around blocks of open squares while
+     * keeping each expansion cheap however deep the path is */
+    private static final int LOOP_CHECK_DEPTH = 8;
+
+    /** A node of the search tree */
+    private static class Node {
+        private int cell;
+        private int cost;
+        private int estimate;
+        private int depth;
+        private long id;
+        private Node parent;
+        /** Cells of the successors, or null if they haven't been computed */
+        private int[] successors;
+        /** children[i] is the node for successors[i], or null if it hasn't
+         * been generated or was forgotten */
+        private Node[] children;
+        /** forgotten[i] is the estimate children[i] had when it was forgotten */
+        private int[] forgotten;
+        /** How many of the successors have been generated at least once */
+        private int generated;
+        /** Whether this node is in the open set */
+        private boolean open;
+
+        private Node(int cell, int cost, int estimate, Node parent, long id) {
+            this.cell = cell;
+            this.cost = cost;
+            this.estimate = estimate;
+            this.parent = parent;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+            this.id = id;
+        }
+
+        /** Returns whether none of this node's children are in memory */
+        private boolean isLeaf() {
+            if (children != null) {
+                for (Node child : children) {
+                    if (child != null) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /** The maze to solve */
+    private Maze maze;
+    /** The most nodes that may be held in memory at once */
+    private int nodeBudget;
+
+    /** Whether the maze has been solved before. This is true if solve() has
+     * been called or if step() has been called until terminated is true */
+    private boolean solvedBefore;
+
+    /** The last node of the solution, which stores the full solution in a linked
+     * list form. If finalNode is null and solvedBefore is true, then there was
+     * no solution to the maze */
+    private MazeNode finalNode;
+
+    // state variables for the step function
+    /** Whether we are done stepping through the solver */
+    private boolean terminated;
+    /** Nodes that still have successors to generate, ordered by estimated
+     * cost and then deepest first */
+    private TreeSet<Node> open;
+    /** The number of nodes in memory */
+    private int used;
+    /** Used to break ties between otherwise equal nodes */
+    private long nextId;
+    /** The most moves a path the search can find may have: fewer than the
+     * node budget, and no more than a path without a repeated square. It is
+     * -1 if the finish can't be reached. Nodes estimated to be further from
+     * the start than this are given up on. */
+    private int maxCost;
+
+    /** The most nodes that have been in memory at once */
+    private int peakNodes;
+    /** The most bytes spent bounding the length of a path without a
+     * repeated square */
+    private long peakBoundBytes;
+
+    /** Initializes a memory-bounded A* solver with the default node budget
+     * @param maze The maze to solve.
+     */
+    public SMAStarMazeSolver(Maze maze) {
+        this(maze, DEFAULT_NODE_BUDGET);
+    }
+
+    /** Initializes a memory-bounded A* solver
+     * @param maze The maze to solve.
+     * @param nodeBudget The most nodes that may be held in memory at once.
+     *        Paths with more squares than this can't be found.
+     */
+    public SMAStarMazeSolver(Maze maze, int nodeBudget) {
+        if (nodeBudget < 2) {
+            throw new IllegalArgumentException("Node budget must be at least 2");
+        }
+        this.maze = maze;
+        this.nodeBudget = nodeBudget;
+        reset();
+    }
+
+    /** Orders nodes by estimated cost, then deepest first, then oldest first */
+    private static int compare(Node a, Node b) {
+        if (a.estimate != b.estimate) {
+            return a.estimate < b.estimate ? -1 : 1;
+        }
+        if (a.depth != b.depth) {
+            return b.depth - a.depth;
+        }
+        return Long.compare(a.id, b.id);
+    }
+
+    /** Changes the estimate of a node, keeping the open set in order */
+    private void setEstimate(Node node, int estimate) {
+        if (node.open) {
+            open.remove(node);
+            node.estimate = estimate;
+            open.add(node);
+        } else {
+            node.estimate = estimate;
+        }
+    }
+
+    /** Adds a node to the open set if it isn't there already */
+    private void addOpen(Node node) {
+        if (!node.open) {
+            node.open = true;
+            open.add(node);
+        }
+    }
+
+    /** Removes a node from the open set if it is there */
+    private void removeOpen(Node node) {
+        if (node.open) {
+            node.open = false;
+            open.remove(node);
+        }
+    }
+
+    /** Finds the successors of the node, leaving out walls and squares that
+     * are among the last LOOP_CHECK_DEPTH squares of the path to it */
+    private int[] findSuccessors(Node node) {
+        int row = node.cell / maze.getWidth();
+        int col = node.cell % maze.getWidth();
+        int[] result = new int[ADJACENTS.length + 1];
+        int count = 0;
+        for (int[] offset : ADJACENTS) {
+            int newCol = col + offset[0];
+            int newRow = row + offset[1];
+            if (newCol < maze.getWidth() && newCol >= 0 &&
+                    newRow < maze.getHeight() && newRow >= 0 &&
+                    maze.at(newRow, newCol) != Square.WALL) {
+                result[count++] = newRow * maze.getWidth() + newCol;
+            }
+        }
+        if (maze.isTeleporter(row, col)) {
+            Point[] teleporters = maze.getTeleporters();
+            Point newLoc = teleporters[0].equals(new Point(col, row)) ? teleporters[1] : teleporters[0];
+            result[count++] = newLoc.y * maze.getWidth() + newLoc.x;
+        }
+        // drop successors that would go back along the path
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            boolean onPath = false;
+            Node ancestor = node.parent;
+            for (int back = 0; ancestor != null && back < LOOP_CHECK_DEPTH && !onPath; back++) {
+                onPath = ancestor.cell == result[i];
+                ancestor = ancestor.parent;
+            }
+            if (!onPath) {
+                result[kept++] = result[i];
+            }
+        }
+        int[] successors = new int[kept];
+        System.arraycopy(result, 0, successors, 0, kept);
+        return successors;
+    }
+
+    /**
+     * Once every successor of a node has been generated, its estimate is
+     * raised to the best estimate of its children, remembered or in memory.
+     * Any change is passed on to its parent.
+     */
+    private void backUp(Node node) {
+        while (node != null && node.generated == node.successors.length) {
+            int best = INFINITY;
+            for (int i = 0; i < node.successors.length; i++) {
+                int childEstimate = node.children[i] == null ? node.forgotten[i] : node.children[i].estimate;
+                best = Math.min(best, childEstimate);
+            }
+            if (best <= node.estimate) {
+                return;
+            }
+            setEstimate(node, best);
+            node = node.parent;
+        }
+    }
+
+    /** Forgets the shallowest leaf with the worst estimate, other than keep,
+     * recording its estimate in its parent. Returns false if there was no
+     * such leaf. */
+    private boolean forgetWorstLeaf(Node keep) {
+        Iterator<Node> worstFirst = open.descendingIterator();
+        while (worstFirst.hasNext()) {
+            Node leaf = worstFirst.next();
+            if (leaf == keep || leaf.parent == null || !leaf.isLeaf()) {
+                continue;
+            }
+            removeOpen(leaf);
+            Node parent = leaf.parent;
+            for (int i = 0; i < parent.children.length; i++) {
+                if (parent.children[i] == leaf) {
+                    parent.children[i] = null;
+                    parent.forgotten[i] = leaf.estimate;
+                }
+            }
+            // the parent has a successor that must be generated again
+            addOpen(parent);
+            used--;
+            return true;
+        }
+        return false;
+    }
+
+    /** Converts the path to the node into a linked list of maze nodes */
+    private MazeNode toMazeNodes(Node last) {
+        int[] cells = new int[last.depth + 1];
+        for (Node node = last; node != null; node = node.parent) {
+            cells[node.depth] = node.cell;
+        }
+        MazeNode result = null;
+        for (int cell : cells) {
+            Point loc = new Point(cell % maze.getWidth(), cell / maze.getWidth());
+            result = new MazeNode(maze.at(loc.y, loc.x), loc, result);
+        }
+        return result;
+    }
+
+    /** Returns the most nodes that have been in memory at once */
+    public int getPeakNodes() {
+        return peakNodes;
+    }
+
+    /** Returns an estimate of the most memory in bytes the search has used,
+     * made up of the search tree and the flood fill that bounds the path
+     * length */
+    public long getPeakMemoryBytes() {
+        return (long) peakNodes * BYTES_PER_NODE + peakBoundBytes;
+    }
+
+    @Override
+    public boolean doneStepping() {
+        return terminated;
+    }
+
+    @Override
+    public String getName() {
+        return "SMA* Maze Solver";
+    }
+
+    @Override
+    public MazeNode getSolution() {
+        if (!solvedBefore) {
+            solve();
+        }
+        return finalNode;
+    }
+
+    @Override
+    /** Returns a string representation of the maze with the solution path
+     * marked by 's'. Teleportations are marked by the 't' instead. */
+    public String getSolutionString() {
+        return MazeStrings.solutionString(maze, getSolution());
+    }
+
+    @Override
+    /** Returns a string representation of the state of the maze solver, with
+     * "v" representing squares on the paths to the open nodes. */
+    public String getSolverState() {
+        boolean[][] inMemory = new boolean[maze.getHeight()][maze.getWidth()];
+        for (Node node : open) {
+            for (Node path = node; path != null; path = path.parent) {
+                inMemory[path.cell / maze.getWidth()][path.cell % maze.getWidth()] = true;
+            }
+        }
+        return MazeStrings.solverState(maze, inMemory);
+    }
+
+    @Override
+    public void reset() {
+        open = new TreeSet<Node>(SMAStarMazeSolver::compare);
+        used = 0;
+        nextId = 0;
+        Heuristics.PathBound bound = Heuristics.longestPath(maze);
+        maxCost = Math.min(bound.moves, nodeBudget - 1);
+        peakBoundBytes = Math.max(peakBoundBytes, bound.bytes);
+        // find the start location and add it to the open set, unless we
+        // already know the finish can't be reached from it
+        if (maxCost >= 0 && maze.canReachFinish(maze.getStart())) {
+            Point start = maze.getStart();
+            addOpen(new Node(start.y * maze.getWidth() + start.x, 0,
+                    Heuristics.estimate(maze, start.y, start.x), null, nextId++));
+            used = 1;
+            peakNodes = Math.max(peakNodes, used);
+        }
+        terminated = false;
+    }
+
+    @Override
+    /** Solves the maze if it hasn't been solved before.
+     * Postcondition: The solver will still be at the same step of the algorithm as
+     * it was before the call to solve().
+     * @return Whether the maze was solvable or not
+     */
+    public boolean solve() {
+        if (!solvedBefore) {
+            // store the current state so we can go back to it later
+            boolean prevTerminated = terminated;
+            TreeSet<Node> prevOpen = open;
+            int prevUsed = used;
+            long prevNextId = nextId;
+            reset();
+            while (!doneStepping()) {
+                step();
+            }
+            terminated = prevTerminated;
+            open = prevOpen;
+            used = prevUsed;
+            nextId = prevNextId;
+        }
+        return finalNode != null;
+    }
+
+    @Override
+    /** Generates one successor of the best open node, first forgetting the
+     * worst leaf if the node budget has been used up. */
+    public void step() {
+        if (terminated) { return; }
+        // if nothing is open or every open path is useless, then the finish
+        // can't be reached within the node budget
+        if (open.isEmpty() || open.first().estimate == INFINITY) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = null;
+            return;
+        }
+
+        Node best = open.first();
+        if (maze.at(best.cell / maze.getWidth(), best.cell % maze.getWidth()) == Square.FINISH) {
+            terminated = true;
+            solvedBefore = true;
+            finalNode = toMazeNodes(best);
+            return;
+        }
+        if (best.successors == null) {
+            best.successors = findSuccessors(best);
+            best.children = new Node[best.successors.length];
+            best.forgotten = new int[best.successors.length];
+            if (best.successors.length == 0) {
+                // a dead end, which can never lead to the finish
+                setEstimate(best, INFINITY);
+                backUp(best.parent);
+                return;
+            }
+        }
+
+        // generate the next new successor, or if they have all been
+        // generated, the forgotten one with the best estimate
+        int index;
+        int estimate;
+        int cell;
+        if (best.generated < best.successors.length) {
+            index = best.generated++;
+            cell = best.successors[index];
+            estimate = best.cost + 1 + Heuristics.estimate(maze,
+                    cell / maze.getWidth(), cell % maze.getWidth());
+        } else {
+            index = -1;
+            for (int i = 0; i < best.children.length; i++) {
+                if (best.children[i] == null && (index == -1 || best.forgotten[i] < best.forgotten[index])) {
+                    index = i;
+                }
+            }
+            cell = best.successors[index];
+            estimate = best.forgotten[index];
+        }
+        Node child = new Node(cell, best.cost + 1, Math.max(best.estimate, estimate), best, nextId++);
+        if (child.estimate > maxCost) {
+            // any path on from here either has too many squares to hold in
+            // memory or repeats a square, so once only such paths are left
+            // the search is exhausted
+            child.estimate = INFINITY;
+        }
+        // make room for the new node by forgetting others
+        while (used >= nodeBudget && forgetWorstLeaf(best)) {
+            // keep forgetting until there is space
+        }
+        best.children[index] = child;
+        addOpen(child);
+        used++;
+        peakNodes = Math.max(peakNodes, used);
+
+        boolean allInMemory = best.generated == best.successors.length;
+        for (Node sibling : best.children) {
+            allInMemory = allInMemory && sibling != null;
+        }
+        if (allInMemory) {
+            removeOpen(best);
+        }
+        backUp(best);
+    }
+}
@@ -0,0 +1,286 @@
+package solver;
+
+import java.awt.Point;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import maze.Maze;
+import maze.MazeNode;
+import maze.WeightedMazeNode;
+
+/**
+ * A snapshot of the search state of a solver, which can be saved in a
+ * compact binary form and used to resume the search in a new solver.
+ * Taking a snapshot only copies the visited array and the list of nodes
+ * to explore, once each. MazeNodes can't be changed, so the nodes
+ * themselves are shared with the solver and only encoded when the
+ * snapshot is written.
+ */
+public class SolverCheckpoint {
+    /** Kind of checkpoint taken from an A* solver. The agenda solvers use
+     * AgendaMazeSolver.STACK and AgendaMazeSolver.QUEUE. */
+    public static final char ASTAR = 'a';
+    /** Marks a saved checkpoint */
+    private static final int MAGIC = 0x4d5a4350;
+    /** Version of the saved format */
+    private static final int VERSION = 2;
+
+    /** Which kind of solver this came from */
+    private char kind;
+    private int width;
+    private int height;
+    /** Maze.fingerprint() of the maze, so that the checkpoint isn't used
+     * for a maze of the same size with different walls */
+    private long fingerprint;
+    /** Whether the solver was done stepping */
+    private boolean terminated;
+    /** visited[i][j] is whether row i, column j had been explored */
+    private boolean[][] visited;
+    /** The nodes left to explore, in the order they were added */
+    private List<MazeNode> agenda;
+    /** The solution, if the solver had finished stepping and found one */
+    private MazeNode finalNode;
+
+    /**
+     * Takes a snapshot of a solver's state. The checkpoint keeps the passed
+     * in visited array and agenda list rather than copying them, so the
+     * solver must hand over copies that it won't change. The nodes are
+     * shared.
+     * @param kind Which kind of solver the state came from
+     * @param maze The maze being solved
+     * @param terminated Whether the solver was done stepping
+     * @param visited Which squares had been explored
+     * @param agenda The nodes left to explore, in the order they were added
+     * @param finalNode The solution found so far, or null
+     */
+    SolverCheckpoint(char kind, Maze maze, boolean terminated, boolean[][] visited,
+            List<MazeNode> agenda, MazeNode finalNode) {
+        this(kind, maze.getWidth(), maze.getHeight(), maze.fingerprint(), terminated,
+                visited, agenda, finalNode);
+    }
+
+    private SolverCheckpoint(char kind, int width, int height, long fingerprint,
+            boolean terminated, boolean[][] visited, List<MazeNode> agenda, MazeNode finalNode) {
+        this.kind = kind;
+        this.width = width;
+        this.height = height;
+        this.fingerprint = fingerprint;
+        this.terminated = terminated;
+        this.visited = visited;
+        this.agenda = agenda;
+        this.finalNode = finalNode;
+    }
+
+    /** Returns which kind of solver this checkpoint came from */
+    public char getKind() {
+        return kind;
+    }
+
+    boolean isTerminated() {
+        return terminated;
+    }
+
+    List<MazeNode> getAgenda() {
+        return agenda;
+    }
+
+    MazeNode getFinalNode() {
+        return finalNode;
+    }
+
+    /** Returns a copy of the visited array */
+    boolean[][] copyVisited() {
+        return copy(visited);
+    }
+
+    /** Returns a copy of a visited array, for solvers that keep using theirs */
+    static boolean[][] copy(boolean[][] visited) {
+        boolean[][] result = new boolean[visited.length][];
+        for (int r = 0; r < visited.length; r++) {
+            result[r] = visited[r].clone();
+        }
+        return result;
+    }
+
+    /**
+     * Throws an exception if this checkpoint can't be used by the solver.
+     * @param kind The kind of the solver resuming from this checkpoint
+     * @param maze The maze that solver is solving
+     */
+    void check(char kind, Maze maze) {
+        if (kind != this.kind) {
+            throw new IllegalArgumentException("Checkpoint is from a different kind of solver");
+        }
+        if (maze.getWidth() != width || maze.getHeight() != height
+                || maze.fingerprint() != fingerprint) {
+            throw new IllegalArgumentException("Checkpoint is from a different maze");
+        }
+    }
+
+    /**
+     * Saves this checkpoint so it can be loaded again with read(). The
+     * visited squares are stored one bit each, and the nodes are stored
+     * once each even if they are shared by several paths.
+     * @param out Where to write the checkpoint
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeChar(kind);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeLong(fingerprint);
+        out.writeBoolean(terminated);
+
+        long word = 0;
+        int bits = 0;
+        for (boolean[] row : visited) {
+            for (boolean square : row) {
+                if (square) {
+                    word |= 1L << bits;
+                }
+                if (++bits == 64) {
+                    out.writeLong(word);
+                    word = 0;
+                    bits = 0;
+                }
+            }
+        }
+        if (bits > 0) {
+            out.writeLong(word);
+        }
+
+        // number the nodes so that every node comes after its previous node
+        Map<MazeNode, Integer> ids = new IdentityHashMap<MazeNode, Integer>();
+        List<MazeNode> order = new ArrayList<MazeNode>();
+        List<MazeNode> roots = new ArrayList<MazeNode>(agenda);
+        if (finalNode != null) {
+            roots.add(finalNode);
+        }
+        for (MazeNode root : roots) {
+            List<MazeNode> chain = new ArrayList<MazeNode>();
+            for (MazeNode node = root; node != null && !ids.containsKey(node); node = node.getPrevious()) {
+                chain.add(node);
+            }
+            for (int i = chain.size() - 1; i >= 0; i--) {
+                ids.put(chain.get(i), order.size());
+                order.add(chain.get(i));
+            }
+        }
+        boolean weighted = kind == ASTAR;
+        out.writeInt(order.size());
+        for (MazeNode node : order) {
+            out.writeInt(node.getRow() * width + node.getCol());
+            out.writeInt(node.getPrevious() == null ? -1 : ids.get(node.getPrevious()));
+            if (weighted) {
+                out.writeInt(((WeightedMazeNode) node).getMovementCost());
+                out.writeInt(((WeightedMazeNode) node).getHeuristic());
+            }
+        }
+        out.writeInt(agenda.size());
+        for (MazeNode node : agenda) {
+            out.writeInt(ids.get(node));
+        }
+        out.writeInt(finalNode == null ? -1 : ids.get(finalNode));
+    }
+
+    /**
+     * Loads a checkpoint saved with write().
+     * @param maze The maze the checkpoint was taken from
+     * @param in Where to read the checkpoint from
+     * @return The loaded checkpoint
+     * @throws IOException If reading fails or the data isn't a checkpoint
+     *         of this maze
+     */
+    public static SolverCheckpoint read(Maze maze, DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a saved checkpoint");
+        }
+        if (in.readInt() != VERSION) {
+            throw new IOException("Unsupported checkpoint version");
+        }
+        char kind = in.readChar();
+        int width = in.readInt();
+        int height = in.readInt();
+        long fingerprint = in.readLong();
+        if (width != maze.getWidth() || height != maze.getHeight()
+                || fingerprint != maze.fingerprint()) {
+            throw new IOException("Checkpoint was saved for a different maze");
+        }
+        boolean terminated = in.readBoolean();
+
+        boolean[][] visited = new boolean[height][width];
+        long word = 0;
+        int bits = 64;
+        for (int r = 0; r < height; r++) {
+            for (int c = 0; c < width; c++) {
+                if (bits == 64) {
+                    word = in.readLong();
+                    bits = 0;
+                }
+                visited[r][c] = (word & 1L << bits++) != 0;
+            }
+        }
+
+        boolean weighted = kind == ASTAR;
+        int nodeCount = in.readInt();
+        if (nodeCount < 0) {
+            throw new IOException("Corrupt checkpoint");
+        }
+        MazeNode[] nodes = new MazeNode[nodeCount];
+        for (int i = 0; i < nodes.length; i++) {
+            int cell = in.readInt();
+            int previous = in.readInt();
+            if (previous >= i || cell < 0 || cell >= width * height) {
+                throw new IOException("Corrupt checkpoint");
+            }
+            Point loc = new Point(cell % width, cell / width);
+            MazeNode prev = node(nodes, previous);
+            if (weighted) {
+                int movementCost = in.readInt();
+                int heuristic = in.readInt();
+                nodes[i] = new WeightedMazeNode(maze.at(loc.y, loc.x), loc, prev, movementCost, heuristic);
+            } else {
+                nodes[i] = new MazeNode(maze.at(loc.y, loc.x), loc, prev);
+            }
+        }
+        List<MazeNode> agenda = new ArrayList<MazeNode>();
+        int agendaSize = in.readInt();
+        if (agendaSize < 0) {
+            throw new IOException("Corrupt checkpoint");
+        }
+        for (int i = 0; i < agendaSize; i++) {
+            MazeNode node = node(nodes, in.readInt());
+            if (node == null) {
+                throw new IOException("Corrupt checkpoint");
+            }
+            agenda.add(node);
+        }
+        MazeNode finalNode = node(nodes, in.readInt());
+        return new SolverCheckpoint(kind, width, height, fingerprint, terminated,
+                visited, agenda, finalNode);
+    }
+
+    /**
+     * Looks up a node by the id it was saved with.
+     * @param nodes The nodes read so far
+     * @param id The id, or -1 for no node
+     * @return The node, or null if id is -1
+     * @throws IOException If there is no node with the id
+     */
+    private static MazeNode node(MazeNode[] nodes, int id) throws IOException {
+        if (id == -1) {
+            return null;
+        }
+        if (id < 0 || id >= nodes.length || nodes[id] == null) {
+            throw new IOException("Corrupt checkpoint");
+        }
+        return nodes[id];
+    }
+}